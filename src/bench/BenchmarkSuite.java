@@ -0,0 +1,162 @@
+package bench;
+
+import javafx.application.Platform;
+import timer.Interval;
+import timer.IntervalCell;
+import timer.PresetFile;
+import timer.Session;
+import timer.SessionScheduler;
+import timer.TimingEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs all benchmarks: parsing and formatting of durations, loading and saving presets of 10 up to
+ * 100k lines, the tick and transition path of a running timer and rendering interval cells.
+ * <p>
+ * Usage: BenchmarkSuite [--out results.csv] [--baseline previous.csv]
+ */
+public class BenchmarkSuite {
+  private static final int[] PRESET_SIZES = {10, 100, 1_000, 10_000, 100_000};
+  private static final int CELL_LIST_SIZE = 100_000;
+
+  private static class BenchCell extends IntervalCell {
+    int render(Interval item) {
+      updateItem(item, false);
+      return getText().length();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Path out = Paths.get("bench_results.csv");
+    Path baseline = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("--out")) {
+        out = Paths.get(args[i + 1]);
+      } else if (args[i].equals("--baseline")) {
+        baseline = Paths.get(args[i + 1]);
+      }
+    }
+
+    Harness harness = new Harness(3, 5);
+
+    durations(harness);
+    presets(harness);
+    engine(harness);
+    cells(harness);
+
+    harness.write(out);
+    System.out.println("Results written to " + out);
+    if (baseline != null) {
+      harness.compare(baseline);
+    }
+  }
+
+  private static void durations(Harness harness) {
+    String[] strings = new String[3481];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = Interval.msToString((i + 1) * 1000);
+    }
+
+    harness.measure("interval.stringToMs", "-", 1_000_000,
+      i -> Interval.stringToMs(strings[i % strings.length]));
+    harness.measure("interval.msToString", "-", 1_000_000,
+      i -> Interval.msToString((i % strings.length) * 1000).length());
+  }
+
+  private static void presets(Harness harness) throws IOException {
+    Path dir = Files.createTempDirectory("jtimerfx-bench");
+
+    for (int size : PRESET_SIZES) {
+      ArrayList<Interval> intervals = generate(size);
+      String path = dir.resolve(size + PresetFile.EXTENSION).toString();
+      int calls = Math.max(5, 100_000 / size);
+
+      harness.measure("preset.save", String.valueOf(size), calls, i -> {
+        PresetFile.save(intervals, path);
+        return size;
+      });
+      harness.measure("preset.load", String.valueOf(size), calls,
+        i -> PresetFile.load(path).size());
+    }
+
+    File[] files = dir.toFile().listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    Files.delete(dir);
+  }
+
+  private static void engine(Harness harness) {
+    ArrayList<Interval> intervals = generate(1_000);
+    long[] now = {0};
+    TimingEngine engine = new TimingEngine(() -> now[0]);
+
+    // a tick samples the engine about one frame later than the previous one
+    engine.start(intervals, 0);
+    harness.measure("engine.tick", "-", 1_000_000, i -> {
+      now[0] += TimeUnit.MILLISECONDS.toNanos(16);
+      if (engine.isFinished()) {
+        engine.restart(now[0]);
+      }
+      return engine.getRemaining();
+    });
+
+    // every sample lands in the next interval
+    now[0] = 0;
+    engine.start(intervals, 0);
+    harness.measure("engine.transition", "-", 1_000_000, i -> {
+      now[0] = engine.getDeadline();
+      if (engine.isFinished()) {
+        engine.restart(now[0]);
+      }
+      return engine.getCurrent();
+    });
+
+    // what Timer does on every tick of a running session
+    Session session = new Session(SessionScheduler.getDefault());
+    session.start(intervals);
+    harness.measure("timer.tick", "-", 1_000_000,
+      i -> Interval.msToString((session.getRemaining() + 999) / 1000 * 1000).length());
+    session.stop();
+  }
+
+  private static void cells(Harness harness) throws Exception {
+    try {
+      Platform.startup(() -> {
+      });
+    } catch (RuntimeException | UnsatisfiedLinkError e) {
+      System.out.println("Skipping cell benchmarks, JavaFX is not available: " + e);
+      return;
+    }
+
+    ArrayList<Interval> intervals = generate(CELL_LIST_SIZE);
+    FutureTask<Void> task = new FutureTask<>(() -> {
+      BenchCell cell = new BenchCell();
+      harness.measure("cell.updateItem", String.valueOf(CELL_LIST_SIZE), CELL_LIST_SIZE,
+        i -> cell.render(intervals.get(i)));
+      return null;
+    });
+
+    Platform.runLater(task);
+    task.get();
+    Platform.exit();
+  }
+
+  private static ArrayList<Interval> generate(int size) {
+    ArrayList<Interval> intervals = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      intervals.add(new Interval((i % 120 + 1) * 1000, "Interval #" + i));
+    }
+    return intervals;
+  }
+}
@@ -0,0 +1,146 @@
+package bench;
+
+import timer.BroadcastClient;
+import timer.BroadcastServer;
+import timer.BroadcastState;
+import timer.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mirrors a simulated session to hundreds of clients over the loopback interface, together with a
+ * few stalled clients that never read. Reports how accurately the clients estimate the clock of the
+ * server, how late the snapshots arrive, how far apart the clients would flip to the next interval
+ * and whether a burst of snapshots is coalesced.
+ * <p>
+ * Usage: BroadcastSimulation [clients] [stalled clients]
+ */
+public class BroadcastSimulation {
+  private static final int STATES = 50;
+  private static final int BURST = 1000;
+  private static final long STATE_DELAY = 50;
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+    int stalledCount = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    BroadcastServer server =
+      new BroadcastServer(new InetSocketAddress("localhost", 0), BroadcastServer.DEFAULT_TICK);
+
+    List<Socket> stalled = new ArrayList<>();
+    for (int i = 0; i < stalledCount; i++) {
+      Socket socket = new Socket();
+      socket.setReceiveBufferSize(1024);
+      socket.connect(new InetSocketAddress("localhost", server.getPort()));
+      stalled.add(socket);
+    }
+
+    long[][] received = new long[count][STATES + BURST];
+    int[] frames = new int[count];
+    List<BroadcastClient> clients = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int id = i;
+      clients.add(new BroadcastClient("localhost", server.getPort(), (client, state) -> {
+        if (state.isRunning() && received[id][state.getIndex()] == 0) {
+          received[id][state.getIndex()] = System.nanoTime();
+        }
+        frames[id]++;
+      }));
+    }
+
+    // let every client finish its burst of pings
+    long wait = System.nanoTime() + 5_000_000_000L;
+    while (System.nanoTime() < wait && !clients.stream().allMatch(BroadcastClient::isSynchronized)) {
+      Thread.sleep(50);
+    }
+    Thread.sleep(1000);
+    System.out.println("clients: " + server.getClientCount() + " (" + stalledCount + " stalled)");
+
+    // both ends share one clock, so every estimated offset is an error
+    LatencyHistogram offsets = new LatencyHistogram();
+    for (BroadcastClient client : clients) {
+      offsets.record(Math.abs(client.getOffset()));
+    }
+    print("offset error", offsets);
+
+    // snapshots published at a human pace
+    long[] published = new long[STATES];
+    LatencyHistogram publish = new LatencyHistogram();
+    long deadline = 0;
+    for (int i = 0; i < STATES; i++) {
+      published[i] = System.nanoTime();
+      deadline = published[i] + 1_000_000_000L;
+      server.publish(new BroadcastState(true, false, i, deadline, 1000, "Interval #" + i));
+      publish.record(System.nanoTime() - published[i]);
+      Thread.sleep(STATE_DELAY);
+    }
+    Thread.sleep(500);
+
+    LatencyHistogram delivery = new LatencyHistogram();
+    int missing = 0;
+    for (long[] times : received) {
+      for (int i = 0; i < STATES; i++) {
+        if (times[i] == 0) {
+          missing++;
+        } else {
+          delivery.record(times[i] - published[i]);
+        }
+      }
+    }
+    print("publish call", publish);
+    print("delivery", delivery);
+    System.out.println("missing snapshots: " + missing + " of " + count * STATES);
+
+    long[] flips = new long[count];
+    for (int i = 0; i < count; i++) {
+      flips[i] = clients.get(i).getDeadline();
+    }
+    Arrays.sort(flips);
+    System.out.printf("flip spread: %d us (deadline error %d us)%n",
+      (flips[count - 1] - flips[0]) / 1000, Math.abs(flips[count / 2] - deadline) / 1000);
+
+    // a burst is coalesced into a few frames per client, ending with the latest snapshot
+    Arrays.fill(frames, 0);
+    for (int i = STATES; i < STATES + BURST; i++) {
+      server.publish(new BroadcastState(true, false, i, deadline, 1000, "Burst"));
+    }
+    Thread.sleep(500);
+
+    int latest = 0;
+    int maxFrames = 0;
+    for (int i = 0; i < count; i++) {
+      if (clients.get(i).getState().getIndex() == STATES + BURST - 1) {
+        latest++;
+      }
+      maxFrames = Math.max(maxFrames, frames[i]);
+    }
+    System.out.println("burst of " + BURST + ": at most " + maxFrames + " frames per client, "
+      + latest + " of " + count + " clients have the latest snapshot");
+
+    for (BroadcastClient client : clients) {
+      client.close();
+    }
+    for (Socket socket : stalled) {
+      close(socket);
+    }
+    server.close();
+  }
+
+  private static void print(String name, LatencyHistogram histogram) {
+    System.out.printf("%s [us]: n=%d p50=%d p99=%d max=%d%n", name, histogram.getCount(),
+      histogram.getPercentile(0.5), histogram.getPercentile(0.99), histogram.getMax());
+  }
+
+  private static void close(Socket socket) {
+    try {
+      socket.close();
+    } catch (final IOException e) {
+      // nothing left to do
+    }
+  }
+}
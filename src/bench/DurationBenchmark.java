@@ -0,0 +1,72 @@
+package bench;
+
+import timer.DurationCodec;
+import timer.Interval;
+
+/**
+ * Compares the per-call cost of the duration conversions in {@link Interval} before and after they
+ * were moved to {@link DurationCodec}. The previous implementations are kept here verbatim, so the
+ * comparison can be repeated on any machine.
+ */
+public class DurationBenchmark {
+  private static final int CALLS = 1_000_000;
+
+  public static void main(String[] args) {
+    String[] strings = new String[3600];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = DurationCodec.format(i * 1000);
+    }
+
+    Harness harness = new Harness(5, 10);
+    report(harness, "stringToMs", i -> legacyStringToMs(strings[i % 3481 + 1]),
+      i -> Interval.stringToMs(strings[i % 3481 + 1]));
+    report(harness, "isValidDuration", i -> legacyIsValidDuration(strings[i % 3600]) ? 1 : 0,
+      i -> Interval.isValidDuration(strings[i % 3600]) ? 1 : 0);
+    report(harness, "msToString", i -> legacyMsToString(i % 3481 * 1000).length(),
+      i -> Interval.msToString(i % 3481 * 1000).length());
+  }
+
+  private static void report(Harness harness, String name, Harness.Operation legacy,
+                             Harness.Operation codec) {
+    double before = harness.measure(name, "legacy", CALLS, legacy).score;
+    double after = harness.measure(name, "codec", CALLS, codec).score;
+    System.out.printf("%-28s %.1fx faster%n", name, before / after);
+  }
+
+  private static boolean legacyIsValidDuration(String duration) {
+    try {
+      int ms = legacyStringToMs(duration);
+      return ms >= Interval.MIN_DURATION && ms <= Interval.MAX_DURATION;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static String legacyMsToString(int ms) {
+    int secs = ms / 1000 % 60;
+    int mins = ms / 1000 / 60;
+
+    return String.format("%02d:%02d", mins, secs);
+  }
+
+  private static int legacyStringToMs(String duration) {
+    if (!duration.matches("\\d\\d:\\d\\d")) {
+      throw new IllegalArgumentException("Invalid format");
+    }
+
+    try {
+      int mins = Integer.valueOf(duration.substring(0, 2));
+      int secs = Integer.valueOf(duration.substring(3, 5));
+
+      int ms = (mins * 60 + secs) * 1000;
+
+      if (ms < Interval.MIN_DURATION || ms > Interval.MAX_DURATION) {
+        throw new IllegalArgumentException("Duration must be between 00:01-59:59");
+      } else {
+        return ms;
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid format");
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A small benchmark harness. Every benchmark is warmed up first and then measured in several
+ * rounds, the score is the average time per operation. Results can be written as CSV and compared
+ * with the results of an earlier run.
+ */
+public class Harness {
+  private static final String HEADER = "benchmark,param,samples,score,error,unit";
+
+  public interface Operation {
+    /**
+     * Runs the measured operation once.
+     *
+     * @param i the number of the call, can be used to vary the input
+     *
+     * @return any value derived from the result, so the JIT can't remove the call
+     *
+     * @throws Exception if the operation fails
+     */
+    int run(int i) throws Exception;
+  }
+
+  public static class Result {
+    public final String benchmark;
+    public final String param;
+    public final int samples;
+    public final double score;
+    public final double error;
+
+    Result(String benchmark, String param, int samples, double score, double error) {
+      this.benchmark = benchmark;
+      this.param = param;
+      this.samples = samples;
+      this.score = score;
+      this.error = error;
+    }
+
+    String key() {
+      return benchmark + "," + param;
+    }
+  }
+
+  private final int warmupRounds;
+  private final int rounds;
+  private final List<Result> results;
+  private int sink;
+
+  public Harness(int warmupRounds, int rounds) {
+    this.warmupRounds = warmupRounds;
+    this.rounds = rounds;
+    this.results = new ArrayList<>();
+  }
+
+  /**
+   * Measures the given operation and prints the result.
+   *
+   * @param benchmark the name of the benchmark
+   * @param param     the parameter of this run, e.g. the input size
+   * @param calls     how many times the operation is called in one round
+   * @param operation the operation to measure
+   *
+   * @return the result
+   */
+  public Result measure(String benchmark, String param, int calls, Operation operation) {
+    try {
+      for (int r = 0; r < warmupRounds; r++) {
+        for (int i = 0; i < calls; i++) {
+          sink += operation.run(i);
+        }
+      }
+
+      double[] samples = new double[rounds];
+      for (int r = 0; r < rounds; r++) {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+          sink += operation.run(i);
+        }
+        samples[r] = (double) (System.nanoTime() - start) / calls;
+      }
+
+      double mean = 0;
+      for (double sample : samples) {
+        mean += sample;
+      }
+      mean /= rounds;
+
+      double variance = 0;
+      for (double sample : samples) {
+        variance += (sample - mean) * (sample - mean);
+      }
+      double error = rounds > 1 ? Math.sqrt(variance / (rounds - 1)) : 0;
+
+      Result result = new Result(benchmark, param, rounds, mean, error);
+      results.add(result);
+      System.out.printf("%-28s %-10s %14.1f +- %10.1f ns/op%n", benchmark, param, mean, error);
+      return result;
+    } catch (Exception e) {
+      throw new IllegalStateException("Benchmark " + benchmark + " failed", e);
+    }
+  }
+
+  public List<Result> getResults() {
+    return results;
+  }
+
+  /**
+   * Writes all results measured so far as CSV.
+   *
+   * @param path the path of the CSV file
+   *
+   * @throws IOException if the file can't be written
+   */
+  public void write(Path path) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      out.write(HEADER + "\n");
+      for (Result r : results) {
+        out.write(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,ns/op%n", r.benchmark, r.param, r.samples,
+          r.score, r.error));
+      }
+    }
+
+    // keep the JIT from removing the measured calls
+    if (sink == 42) {
+      System.out.println();
+    }
+  }
+
+  /**
+   * Prints how the results measured so far differ from the ones in an earlier CSV file.
+   *
+   * @param baseline the path of the CSV file to compare with
+   *
+   * @throws IOException if the file can't be read
+   */
+  public void compare(Path baseline) throws IOException {
+    Map<String, Double> scores = new LinkedHashMap<>();
+    try (BufferedReader in = Files.newBufferedReader(baseline, StandardCharsets.UTF_8)) {
+      String line = in.readLine();
+      if (!HEADER.equals(line)) {
+        throw new IllegalArgumentException("Invalid format");
+      }
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.split(",");
+        scores.put(fields[0] + "," + fields[1], Double.valueOf(fields[3]));
+      }
+    }
+
+    System.out.println();
+    System.out.println("Compared with " + baseline + ":");
+    for (Result r : results) {
+      Double before = scores.get(r.key());
+      if (before != null) {
+        System.out.printf("%-28s %-10s %+8.1f%%%n", r.benchmark, r.param,
+          (r.score - before) / before * 100);
+      }
+    }
+  }
+}
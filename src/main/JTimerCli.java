@@ -0,0 +1,227 @@
+package main;
+
+import timer.DurationCodec;
+import timer.Interval;
+import timer.PresetCatalog;
+import timer.PresetError;
+import timer.PresetFile;
+import timer.SampledCues;
+import timer.Session;
+import timer.SessionListener;
+import timer.SessionScheduler;
+import timer.Timeline;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a preset without a user interface: every transition is printed to the standard output and
+ * the cues are played with {@code javax.sound}, or the terminal bell if there is no audio device.
+ * No JavaFX class is ever loaded, so the runner starts quickly and works on headless machines.
+ * <p>
+ * Usage: JTimerCli [--repeat] [--list] [--no-countdown] preset
+ * <ul>
+ *   <li>preset - the name of a preset in the presets directory or the path of a preset file</li>
+ *   <li>--repeat - start over after the last interval until the process is stopped</li>
+ *   <li>--list - print the intervals and their total duration instead of running them</li>
+ *   <li>--no-countdown - don't show the time left on the console</li>
+ * </ul>
+ */
+public class JTimerCli {
+  private static final String PRESET_DIR = "presets/";
+
+  private final Session session;
+  private final SampledCues cues;
+  private final CountDownLatch finished;
+  private final boolean countdown;
+
+  // the time the last run ended in System.nanoTime() units
+  private volatile long endTime;
+
+  private JTimerCli(boolean repeat, boolean countdown, String cuePath) {
+    this.session = new Session(SessionScheduler.getDefault());
+    this.cues = new SampledCues();
+    this.finished = new CountDownLatch(1);
+    this.countdown = countdown;
+
+    cues.usePreset(cuePath);
+    session.setRepeat(repeat);
+    session.addListener(new SessionListener() {
+      public void started(Session session) {
+        printStep();
+        armCues();
+      }
+
+      public void transition(Session session, int index, long time) {
+        printStep();
+        armCues();
+      }
+
+      public void finished(Session session, long time) {
+        print("Finished after " + DurationCodec.formatLong(session.getTotalDuration()));
+        if (!session.isRepeat()) {
+          endTime = time;
+          finished.countDown();
+        }
+      }
+    });
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    boolean repeat = false;
+    boolean list = false;
+    boolean countdown = System.console() != null;
+    String preset = null;
+
+    for (String arg : args) {
+      if (arg.equals("--repeat")) {
+        repeat = true;
+      } else if (arg.equals("--list")) {
+        list = true;
+      } else if (arg.equals("--no-countdown")) {
+        countdown = false;
+      } else if (arg.startsWith("--") || preset != null) {
+        usage();
+        return;
+      } else {
+        preset = arg;
+      }
+    }
+    if (preset == null) {
+      usage();
+      return;
+    }
+
+    Path path = resolve(preset);
+    List<Interval> intervals = new ArrayList<>();
+    try {
+      List<PresetError> errors = PresetFile.load(path, intervals::add);
+      if (!errors.isEmpty()) {
+        System.err.println(PresetFile.describe(errors));
+      }
+    } catch (final IllegalArgumentException e) {
+      System.err.println(path + ": " + e.getMessage());
+      System.exit(1);
+    }
+    if (intervals.isEmpty()) {
+      System.err.println(path + ": There are no intervals");
+      System.exit(1);
+    }
+
+    Timeline timeline = new Timeline(intervals);
+    if (list) {
+      for (Interval interval : intervals) {
+        System.out.println(interval);
+      }
+      System.out.println("Total " + DurationCodec.formatLong(timeline.getTotalDuration()));
+      return;
+    }
+
+    new JTimerCli(repeat, countdown, cuePath(path)).run(timeline);
+  }
+
+  private static void usage() {
+    System.err.println("Usage: JTimerCli [--repeat] [--list] [--no-countdown] preset");
+    System.exit(2);
+  }
+
+  /**
+   * Finds the given preset, either a path or the name of a preset in the presets directory.
+   *
+   * @param preset the name or path of the preset
+   *
+   * @return the path of the preset file
+   */
+  private static Path resolve(String preset) {
+    Path path = Paths.get(preset);
+    if (Files.isRegularFile(path)) {
+      return path;
+    }
+
+    for (String extension : new String[] {PresetFile.EXTENSION, PresetFile.BINARY_EXTENSION}) {
+      Path stored = Paths.get(PRESET_DIR + preset + extension);
+      if (Files.isRegularFile(stored)) {
+        return stored;
+      }
+    }
+    return path;
+  }
+
+  /**
+   * Returns the prefix of the cue files a preset may bring next to it, see CuePlayer: the path of
+   * the preset without its extension, or the whole path if it has no preset extension.
+   *
+   * @param path the path of the preset file
+   *
+   * @return the prefix of the cue files
+   */
+  private static String cuePath(Path path) {
+    String filename = path.toString();
+    if (path.getFileName() == null || !PresetCatalog.isPreset(path)) {
+      return filename;
+    }
+    return filename.substring(0, filename.lastIndexOf('.'));
+  }
+
+  private void run(Timeline timeline) throws InterruptedException {
+    print("Running " + timeline.size() + " intervals, "
+      + DurationCodec.formatLong(timeline.getTotalDuration()));
+    session.start(timeline);
+
+    if (countdown) {
+      while (finished.getCount() > 0) {
+        int remaining = session.getRemaining();
+        Interval step = session.getStep();
+        if (step != null) {
+          synchronized (this) {
+            System.out.print("\r" + Interval.msToString((remaining + 999) / 1000 * 1000) + " "
+              + step.getLabel() + "   ");
+            System.out.flush();
+          }
+        }
+
+        // wake up when the shown second changes, like the label of the timer
+        finished.await(Math.max(1, (remaining - 1) % 1000 + 1), TimeUnit.MILLISECONDS);
+      }
+    }
+    finished.await();
+
+    // let the last cue play to its end
+    long wait = endTime - System.nanoTime();
+    if (wait > 0) {
+      Thread.sleep(wait / 1_000_000);
+    }
+    Thread.sleep(100);
+    cues.awaitSilence();
+  }
+
+  private void printStep() {
+    Interval step = session.getStep();
+    if (step != null) {
+      print("[" + DurationCodec.formatLong(session.getElapsed()) + "] " + step.getLabel() + " ("
+        + Interval.msToString(step.getDuration()) + ")");
+    }
+  }
+
+  private synchronized void print(String line) {
+    if (countdown) {
+      // replace the countdown line, which is drawn again right after
+      System.out.print("\r\u001b[K");
+    }
+    System.out.println(line);
+  }
+
+  private void armCues() {
+    cues.cancel();
+    long deadline = session.getDeadline();
+    cues.schedule(SampledCues.Cue.Done, deadline);
+    if (session.isLastStep()) {
+      cues.schedule(SampledCues.Cue.End, deadline);
+    }
+  }
+}
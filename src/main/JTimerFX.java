@@ -19,6 +19,6 @@ public class JTimerFX extends Application {
   }
 
   public void stop() {
-    timer.saveCurrentPreset();
+    timer.close();
   }
 }
@@ -0,0 +1,73 @@
+package main;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.stage.Stage;
+import timer.BroadcastClient;
+import timer.Interval;
+
+import java.util.List;
+
+/**
+ * A read-only display of a session broadcast by another JTimerFX, which has to be started with
+ * {@code -Djtimer.broadcast=<port>}.
+ * <p>
+ * Usage: JTimerMirror [host] [port]
+ */
+public class JTimerMirror extends Application {
+  private static final int DEFAULT_PORT = 47110;
+
+  private BroadcastClient client;
+  private int displayed = -1;
+
+  public static void main(String[] args) {
+    launch(args);
+  }
+
+  public void start(Stage stage) {
+    List<String> args = getParameters().getRaw();
+    String host = args.size() > 0 ? args.get(0) : "localhost";
+    int port = args.size() > 1 ? Integer.parseInt(args.get(1)) : DEFAULT_PORT;
+
+    Label remainingLabel = new Label(Interval.msToString(0));
+    remainingLabel.setFont(Font.font("System", FontWeight.BOLD, 120));
+    Label stepLabel = new Label();
+    stepLabel.setFont(Font.font("System", 30));
+
+    VBox layout = new VBox(5, remainingLabel, stepLabel);
+    layout.setAlignment(Pos.CENTER);
+    layout.setPadding(new Insets(20));
+
+    client = new BroadcastClient(host, port, (client, state) -> Platform.runLater(
+      () -> stepLabel.setText(state.isRunning() ? state.getLabel() : null)));
+
+    // the deadline is known in the local clock, so every frame only compares it to the time
+    new AnimationTimer() {
+      public void handle(long now) {
+        int seconds = (client.getRemaining() + 999) / 1000;
+        if (seconds != displayed) {
+          displayed = seconds;
+          remainingLabel.setText(Interval.msToString(seconds * 1000));
+        }
+      }
+    }.start();
+
+    stage.setTitle("JTimerFX - " + host + ":" + port);
+    stage.setScene(new Scene(layout));
+    stage.show();
+  }
+
+  public void stop() {
+    if (client != null) {
+      client.close();
+    }
+  }
+}
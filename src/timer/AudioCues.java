@@ -0,0 +1,38 @@
+package timer;
+
+import javafx.scene.media.AudioClip;
+
+import java.io.File;
+
+/**
+ * Plays the cues of the timer with JavaFX {@link AudioClip}s, see {@link CuePlayer}.
+ */
+public class AudioCues extends CuePlayer<AudioClip> {
+  /**
+   * Creates the cue player and decodes the default cues.
+   */
+  public AudioCues() {
+    this(0);
+  }
+
+  /**
+   * Creates the cue player and decodes the default cues.
+   *
+   * @param lead how long before the deadline a cue should start playing in nanoseconds, to make up
+   *             for the latency of the audio output
+   */
+  public AudioCues(long lead) {
+    super(lead);
+    preload();
+  }
+
+  protected AudioClip decode(String filename, int cycleCount) {
+    AudioClip clip = new AudioClip(new File(filename).toURI().toString());
+    clip.setCycleCount(cycleCount);
+    return clip;
+  }
+
+  protected void playSound(AudioClip clip) {
+    clip.play();
+  }
+}
@@ -0,0 +1,295 @@
+package timer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes the binary preset format. A file consists of
+ * <ul>
+ *   <li>a fixed header: the magic bytes "JTFB", a version byte, the number of intervals (int) and
+ *   the total duration in ms (long), so both can be read without decoding the rest,</li>
+ *   <li>a table of distinct labels: their count, then the UTF-8 length and bytes of each,</li>
+ *   <li>the intervals: the duration in ms and the index of the label in the table.</li>
+ * </ul>
+ * A {@link RepeatGroup} is written as the duration 0, followed by its count, the index of its label
+ * and the number of its children, which follow right after. The count in the header only includes
+ * the intervals at the top level, the total duration includes every repetition. Version 1 files
+ * contain no groups.
+ * Every count, length, duration and index after the header is an unsigned LEB128 varint. All
+ * fixed-size numbers are big-endian.
+ */
+class BinaryPresetFile {
+  static final byte[] MAGIC = {'J', 'T', 'F', 'B'};
+  static final int HEADER_SIZE = MAGIC.length + 1 + Integer.BYTES + Long.BYTES;
+
+  private static final byte VERSION = 2;
+  private static final int GROUP = 0;
+
+  // thrown by the reader to stop at data that can't be decoded, like an invalid group
+  private static final class InvalidDataException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int position;
+
+    private InvalidDataException(String message, int position) {
+      super(message);
+      this.position = position;
+    }
+  }
+
+  private BinaryPresetFile() {
+  }
+
+  static boolean isBinary(ByteBuffer start) {
+    if (start.remaining() < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (start.get(start.position() + i) != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static PresetSummary readSummary(Path path) throws IOException {
+    // read rather than mapped, see load(Path, Consumer)
+    ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+    if (in.remaining() < HEADER_SIZE || !isBinary(in)) {
+      throw new IllegalArgumentException("Invalid format");
+    }
+    in.position(MAGIC.length + 1);
+    int count = in.getInt();
+    long total = in.getLong();
+    if (count < 0 || total < 0) {
+      throw new IllegalArgumentException("Invalid format");
+    }
+
+    // the table of labels follows the header, the intervals themselves aren't needed
+    try {
+      List<String> labels = new ArrayList<>(Arrays.asList(readLabels(in)));
+      return new PresetSummary(count, total, labels);
+    } catch (BufferUnderflowException | InvalidDataException e) {
+      throw new IllegalArgumentException("Invalid format");
+    }
+  }
+
+  static List<PresetError> load(Path path, Consumer<Interval> consumer) throws IOException {
+    // read rather than mapped: a mapping lasts until it is collected, and on Windows a mapped
+    // file can't be replaced by the next save
+    return load(ByteBuffer.wrap(Files.readAllBytes(path)), consumer);
+  }
+
+  static List<PresetError> load(ByteBuffer in, Consumer<Interval> consumer) {
+    List<PresetError> errors = new ArrayList<>();
+    int index = 0;
+
+    try {
+      if (in.remaining() < HEADER_SIZE || !isBinary(in)) {
+        errors.add(new PresetError(1, 1, "Invalid format"));
+        return errors;
+      }
+      in.position(MAGIC.length);
+      byte version = in.get();
+      if (version < 1 || version > VERSION) {
+        errors.add(new PresetError(1, MAGIC.length + 1, "Unsupported version"));
+        return errors;
+      }
+
+      int count = in.getInt();
+      in.getLong();
+      if (count < 0) {
+        errors.add(new PresetError(1, MAGIC.length + 2, "Invalid number of intervals"));
+        return errors;
+      }
+
+      String[] labels = readLabels(in);
+
+      for (; index < count; index++) {
+        Interval interval = read(in, labels, 0, index, errors);
+        if (interval != null) {
+          consumer.accept(interval);
+        }
+      }
+    } catch (BufferUnderflowException e) {
+      errors.add(new PresetError(index + 1, in.position() + 1, "Unexpected end of file"));
+    } catch (InvalidDataException e) {
+      errors.add(new PresetError(index + 1, e.position + 1, e.getMessage()));
+    }
+
+    return errors;
+  }
+
+  /**
+   * Reads an interval, or a group with all its children. Errors in a single interval are
+   * reported, an invalid group ends the file.
+   */
+  private static Interval read(ByteBuffer in, String[] labels, int depth, int index,
+                               List<PresetError> errors) {
+    int position = in.position();
+    int duration = readVarint(in);
+
+    if (duration == GROUP) {
+      int count = readVarint(in);
+      int label = readVarint(in);
+      int size = readVarint(in);
+      // every child takes at least two bytes, a larger size can only be garbage
+      if (label >= labels.length || count < 1 || count > RepeatGroup.MAX_COUNT || size < 1
+        || size > in.remaining() / 2 || depth >= RepeatGroup.MAX_DEPTH) {
+        throw new InvalidDataException("Invalid repeat group", position);
+      }
+
+      List<Interval> children = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        Interval child = read(in, labels, depth + 1, index, errors);
+        if (child != null) {
+          children.add(child);
+        }
+      }
+      return children.isEmpty() ? null : new RepeatGroup(count, labels[label], children);
+    }
+
+    int label = readVarint(in);
+
+    // report the number of the top level interval as the line and the byte offset as the column
+    if (label < 0 || label >= labels.length) {
+      errors.add(new PresetError(index + 1, position + 1, "Invalid label"));
+    } else if (duration < Interval.MIN_DURATION || duration > Interval.MAX_DURATION) {
+      errors.add(
+        new PresetError(index + 1, position + 1, "Duration must be between 00:01-59:59"));
+    } else {
+      return new Interval(duration, labels[label]);
+    }
+    return null;
+  }
+
+  static void save(List<Interval> intervals, OutputStream stream) throws IOException {
+    Map<String, Integer> ids = new HashMap<>();
+    List<String> labels = new ArrayList<>();
+    long total = 0;
+
+    if (intervals != null) {
+      for (Interval i : intervals) {
+        total += i.getTotalDuration();
+      }
+      collectLabels(intervals, ids, labels);
+    }
+
+    OutputStream out = new BufferedOutputStream(stream);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.put(MAGIC).put(VERSION);
+    header.putInt(intervals != null ? intervals.size() : 0).putLong(total);
+    out.write(header.array());
+
+    writeVarint(out, labels.size());
+    for (String label : labels) {
+      byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+      writeVarint(out, bytes.length);
+      out.write(bytes);
+    }
+
+    if (intervals != null) {
+      write(out, intervals, ids);
+    }
+    out.flush();
+  }
+
+  private static void collectLabels(List<Interval> intervals, Map<String, Integer> ids,
+                                    List<String> labels) {
+    for (Interval i : intervals) {
+      if (!ids.containsKey(i.getLabel())) {
+        ids.put(i.getLabel(), labels.size());
+        labels.add(i.getLabel());
+      }
+      if (i instanceof RepeatGroup) {
+        collectLabels(((RepeatGroup) i).getChildren(), ids, labels);
+      }
+    }
+  }
+
+  private static void write(OutputStream out, List<Interval> intervals, Map<String, Integer> ids)
+    throws IOException {
+    for (Interval i : intervals) {
+      if (i instanceof RepeatGroup) {
+        RepeatGroup group = (RepeatGroup) i;
+        writeVarint(out, GROUP);
+        writeVarint(out, group.getCount());
+        writeVarint(out, ids.get(group.getLabel()));
+        writeVarint(out, group.getChildren().size());
+        write(out, group.getChildren(), ids);
+      } else {
+        writeVarint(out, i.getDuration());
+        writeVarint(out, ids.get(i.getLabel()));
+      }
+    }
+  }
+
+  /**
+   * Reads the table of labels. Counts and lengths are checked against the bytes left before
+   * anything is allocated, so a corrupt file can't claim gigabytes.
+   */
+  private static String[] readLabels(ByteBuffer in) {
+    int position = in.position();
+    int count = readVarint(in);
+    // every label takes at least the byte of its length
+    if (count > in.remaining()) {
+      throw new InvalidDataException("Invalid number of labels", position);
+    }
+
+    String[] labels = new String[count];
+    for (int i = 0; i < labels.length; i++) {
+      position = in.position();
+      int length = readVarint(in);
+      if (length > in.remaining()) {
+        throw new InvalidDataException("Invalid label", position);
+      }
+      byte[] bytes = new byte[length];
+      in.get(bytes);
+      labels[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return labels;
+  }
+
+  /**
+   * Reads a varint of at most five bytes. Values that don't fit into a non-negative int are
+   * invalid, so every count, length and index read is at least 0.
+   */
+  private static int readVarint(ByteBuffer in) {
+    int position = in.position();
+    int value = 0;
+    for (int shift = 0; shift < 28; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+
+    // the fifth byte holds the last three bits, anything more would overflow or go negative
+    byte b = in.get();
+    if (b < 0 || b > 7) {
+      throw new InvalidDataException("Invalid number", position);
+    }
+    return value | b << 28;
+  }
+
+  private static void writeVarint(OutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
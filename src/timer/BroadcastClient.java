@@ -0,0 +1,228 @@
+package timer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A read-only mirror of a session published by a {@link BroadcastServer}. The client pings the
+ * server regularly and estimates the offset between the two clocks from the answer with the
+ * shortest round trip, the same way NTP does. The deadlines received from the server are then
+ * translated into the local clock, so all clients flip to the next interval at the same moment
+ * regardless of how late the snapshot reached them.
+ */
+public class BroadcastClient {
+  private static final int SAMPLES = 8;
+  private static final long FAST_PING = 100;
+  private static final long SLOW_PING = 5000;
+
+  // the pings of every client are sent from a single thread
+  private static final ScheduledExecutorService pinger =
+    Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "broadcast-ping");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  public interface Listener {
+    /**
+     * Called on the thread of the client when a new snapshot arrives.
+     *
+     * @param client the client
+     * @param state  the snapshot
+     */
+    void stateChanged(BroadcastClient client, BroadcastState state);
+  }
+
+  private final Socket socket;
+  private final DataOutputStream out;
+  private final Listener listener;
+  private final Thread thread;
+  private volatile ScheduledFuture<?> pings;
+
+  // offset and round trip of the last pongs, only touched by the thread of the client
+  private final long[] offsets;
+  private final long[] roundTrips;
+  private int samples;
+
+  private volatile long offset;
+  private volatile long roundTrip;
+  private volatile BroadcastState state;
+  private int pingCount;
+
+  /**
+   * Connects to a server.
+   *
+   * @param host     the host of the server
+   * @param port     the port of the server
+   * @param listener the listener of the snapshots, may be null
+   *
+   * @throws IllegalArgumentException if the server cannot be reached
+   */
+  public BroadcastClient(String host, int port, Listener listener) {
+    this.listener = listener;
+    this.offsets = new long[SAMPLES];
+    this.roundTrips = new long[SAMPLES];
+    this.roundTrip = Long.MAX_VALUE;
+    this.state = BroadcastState.STOPPED;
+
+    try {
+      socket = new Socket();
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(host, port));
+      out = new DataOutputStream(socket.getOutputStream());
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Could not connect to " + host + ":" + port);
+    }
+
+    thread = new Thread(this::run, "broadcast-client");
+    thread.setDaemon(true);
+    thread.start();
+
+    // a burst of pings for a quick first estimate, then a few to follow the drift of the clocks
+    pings = pinger.scheduleWithFixedDelay(this::ping, 0, FAST_PING, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the estimated offset of the server's clock.
+   *
+   * @return the server's {@link System#nanoTime()} minus the local one
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns the round trip of the ping the offset was estimated from.
+   *
+   * @return the round trip in nanoseconds, or {@link Long#MAX_VALUE} if there was no answer yet
+   */
+  public long getRoundTrip() {
+    return roundTrip;
+  }
+
+  public BroadcastState getState() {
+    return state;
+  }
+
+  /**
+   * Returns whether the clocks were synchronized at least once.
+   *
+   * @return true if the offset is known
+   */
+  public boolean isSynchronized() {
+    return roundTrip != Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns the deadline of the current step in the local clock.
+   *
+   * @return the deadline in {@link System#nanoTime()} units
+   */
+  public long getDeadline() {
+    return state.getDeadline() - offset;
+  }
+
+  /**
+   * Returns the time left in the current step.
+   *
+   * @return remaining time in ms, or 0 if the mirrored session is not running
+   */
+  public int getRemaining() {
+    BroadcastState current = state;
+    if (!current.isRunning()) {
+      return 0;
+    }
+    if (current.isPaused()) {
+      return current.getRemaining();
+    }
+
+    long remaining = current.getDeadline() - offset - System.nanoTime();
+    return (int) Math.max(0, (remaining + 999_999) / 1_000_000);
+  }
+
+  public void close() {
+    ScheduledFuture<?> pings = this.pings;
+    if (pings != null) {
+      pings.cancel(false);
+    }
+    try {
+      socket.close();
+    } catch (final IOException e) {
+      // already closed
+    }
+  }
+
+  private void ping() {
+    try {
+      synchronized (out) {
+        out.writeShort(1 + Long.BYTES);
+        out.writeByte(BroadcastState.PING);
+        out.writeLong(System.nanoTime());
+        out.flush();
+      }
+    } catch (final IOException e) {
+      close();
+      return;
+    }
+
+    if (++pingCount == SAMPLES) {
+      pings.cancel(false);
+      if (!socket.isClosed()) {
+        pings =
+          pinger.scheduleWithFixedDelay(this::ping, SLOW_PING, SLOW_PING, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private void run() {
+    try (var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+      byte[] payload = new byte[BroadcastState.MAX_FRAME];
+      while (true) {
+        int length = in.readUnsignedShort();
+        if (length < 1 || length > payload.length) {
+          break;
+        }
+        in.readFully(payload, 0, length);
+
+        ByteBuffer frame = ByteBuffer.wrap(payload, 1, length - 1);
+        if (payload[0] == BroadcastState.PONG) {
+          pong(frame.getLong(), frame.getLong(), System.nanoTime());
+        } else if (payload[0] == BroadcastState.STATE) {
+          state = BroadcastState.decode(frame);
+          if (listener != null) {
+            listener.stateChanged(this, state);
+          }
+        }
+      }
+    } catch (final IOException e) {
+      // disconnected
+    } finally {
+      close();
+    }
+  }
+
+  private void pong(long sent, long serverTime, long received) {
+    int slot = samples++ % SAMPLES;
+    roundTrips[slot] = received - sent;
+    offsets[slot] = serverTime - (sent + (received - sent) / 2);
+
+    // the answer that took the shortest way is the one least distorted by queueing
+    int best = 0;
+    for (int i = 1; i < Math.min(samples, SAMPLES); i++) {
+      if (roundTrips[i] < roundTrips[best]) {
+        best = i;
+      }
+    }
+    offset = offsets[best];
+    roundTrip = roundTrips[best];
+  }
+}
@@ -0,0 +1,41 @@
+package timer;
+
+/**
+ * Publishes a snapshot of a session to a {@link BroadcastServer} on every event of the session.
+ */
+public class BroadcastPublisher implements SessionListener {
+  private final BroadcastServer server;
+
+  public BroadcastPublisher(BroadcastServer server) {
+    this.server = server;
+  }
+
+  public void started(Session session) {
+    server.publish(BroadcastState.of(session));
+  }
+
+  public void transition(Session session, int index, long time) {
+    server.publish(BroadcastState.of(session));
+  }
+
+  public void jumped(Session session, int index) {
+    server.publish(BroadcastState.of(session));
+  }
+
+  public void paused(Session session) {
+    server.publish(BroadcastState.of(session));
+  }
+
+  public void resumed(Session session) {
+    server.publish(BroadcastState.of(session));
+  }
+
+  public void stopped(Session session) {
+    server.publish(BroadcastState.STOPPED);
+  }
+
+  public void finished(Session session, long time) {
+    // a repeating session starts over right away, which is published within the same tick
+    server.publish(BroadcastState.STOPPED);
+  }
+}
@@ -0,0 +1,299 @@
+package timer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mirrors a session to any number of {@link BroadcastClient}s from a single thread. Published
+ * snapshots are coalesced per tick: however many are published within one tick, each client is
+ * sent only the latest one. A client that hasn't taken the previous frame yet is skipped instead of
+ * blocking the others, and is sent the latest snapshot as soon as it catches up.
+ * <p>
+ * The server also answers the pings of the clients with its own clock, so they can translate the
+ * deadlines in the snapshots into their own clock. See {@link BroadcastState} for the frames.
+ */
+public class BroadcastServer {
+  public static final long DEFAULT_TICK = 10_000_000L;
+
+  private static final int BUFFER_SIZE = 4096;
+
+  private static class Client {
+    final SocketChannel channel;
+    final ByteBuffer in;
+    final ByteBuffer out;
+    boolean stale;
+
+    Client(SocketChannel channel) {
+      this.channel = channel;
+      this.in = ByteBuffer.allocate(BroadcastState.MAX_FRAME);
+      this.out = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+  }
+
+  private final long tickNanos;
+  private final Selector selector;
+  private final ServerSocketChannel server;
+  private final Thread thread;
+  private final AtomicReference<BroadcastState> latest;
+  private volatile boolean published;
+  private volatile boolean running;
+  private volatile int clients;
+
+  // the latest snapshot as a frame, only used by the server thread
+  private ByteBuffer frame;
+  private long nextTick;
+
+  /**
+   * Starts a server with the default tick length of 10 ms on all interfaces.
+   *
+   * @param port the port, or 0 for any free port
+   *
+   * @throws IllegalArgumentException if the port cannot be opened
+   */
+  public BroadcastServer(int port) {
+    this(new InetSocketAddress(port), DEFAULT_TICK);
+  }
+
+  /**
+   * Starts a server.
+   *
+   * @param address   the address to listen on
+   * @param tickNanos the length of one tick in nanoseconds
+   *
+   * @throws IllegalArgumentException if the address cannot be opened
+   */
+  public BroadcastServer(InetSocketAddress address, long tickNanos) {
+    this.tickNanos = tickNanos;
+    this.latest = new AtomicReference<>(BroadcastState.STOPPED);
+    this.frame = BroadcastState.STOPPED.encode();
+
+    try {
+      selector = Selector.open();
+      server = ServerSocketChannel.open();
+      server.bind(address);
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Could not open " + address);
+    }
+
+    running = true;
+    thread = new Thread(this::run, "broadcast-server");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public int getPort() {
+    return server.socket().getLocalPort();
+  }
+
+  /**
+   * Returns the number of connected clients.
+   *
+   * @return the number of clients
+   */
+  public int getClientCount() {
+    return clients;
+  }
+
+  /**
+   * Publishes a snapshot to every client. This method never blocks, so it can be called from the
+   * timing path.
+   *
+   * @param state the snapshot
+   */
+  public void publish(BroadcastState state) {
+    latest.set(state);
+    published = true;
+    selector.wakeup();
+  }
+
+  /**
+   * Stops the server and disconnects all clients.
+   */
+  public void close() {
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        long now = System.nanoTime();
+        if (published && now >= nextTick) {
+          published = false;
+          broadcast(latest.get().encode());
+          nextTick = now + tickNanos;
+        }
+
+        // a snapshot published within the current tick waits for the next one
+        if (published) {
+          selector.select(Math.max(1, (nextTick - now + 999_999) / 1_000_000));
+        } else {
+          selector.select();
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+
+          if (key.isAcceptable()) {
+            accept();
+            continue;
+          }
+
+          Client client = (Client) key.attachment();
+          if (key.isReadable()) {
+            read(key, client);
+          }
+          if (key.isValid() && key.isWritable()) {
+            flush(key, client);
+          }
+        }
+      }
+    } catch (IOException | ClosedSelectorException e) {
+      // the server can't go on without its selector
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        close(key);
+      }
+      try {
+        selector.close();
+        server.close();
+      } catch (final IOException e) {
+        // nothing left to do
+      }
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel;
+    while ((channel = server.accept()) != null) {
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+
+      Client client = new Client(channel);
+      SelectionKey key = channel.register(selector, SelectionKey.OP_READ, client);
+      clients++;
+      send(key, client, frame);
+    }
+  }
+
+  private void broadcast(ByteBuffer frame) {
+    this.frame = frame;
+    for (SelectionKey key : selector.keys()) {
+      if (key.isValid() && key.attachment() != null) {
+        send(key, (Client) key.attachment(), frame);
+      }
+    }
+  }
+
+  private void send(SelectionKey key, Client client, ByteBuffer frame) {
+    if (client.out.position() > 0) {
+      // still busy with an older frame, it is sent the latest one when it catches up
+      client.stale = true;
+      return;
+    }
+
+    client.out.put(frame.duplicate());
+    flush(key, client);
+  }
+
+  private void read(SelectionKey key, Client client) {
+    try {
+      if (client.channel.read(client.in) < 0) {
+        close(key);
+        return;
+      }
+    } catch (final IOException e) {
+      close(key);
+      return;
+    }
+
+    ByteBuffer in = client.in.flip();
+    while (in.remaining() >= Short.BYTES + 1) {
+      int length = Short.toUnsignedInt(in.getShort(in.position()));
+      if (length < 1 || length > in.capacity() - Short.BYTES) {
+        close(key);
+        return;
+      }
+      if (in.remaining() < Short.BYTES + length) {
+        break;
+      }
+
+      int next = in.position() + Short.BYTES + length;
+      in.position(in.position() + Short.BYTES);
+      if (in.get() == BroadcastState.PING && length == 1 + Long.BYTES
+        && client.out.remaining() >= BroadcastState.PONG_SIZE) {
+        long ping = in.getLong();
+        client.out.putShort((short) (1 + 2 * Long.BYTES));
+        client.out.put(BroadcastState.PONG);
+        client.out.putLong(ping);
+        client.out.putLong(System.nanoTime());
+      }
+      // anything else is ignored, as well as pings of a client that can't take the answer
+      in.position(next);
+    }
+    in.compact();
+
+    if (client.out.position() > 0) {
+      flush(key, client);
+    }
+  }
+
+  private void flush(SelectionKey key, Client client) {
+    try {
+      client.channel.write(client.out.flip());
+      client.out.compact();
+    } catch (final IOException e) {
+      close(key);
+      return;
+    }
+
+    if (client.out.position() == 0 && client.stale) {
+      client.stale = false;
+      client.out.put(frame.duplicate());
+      flush(key, client);
+      return;
+    }
+
+    int ops = client.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+      : SelectionKey.OP_READ;
+    if (key.interestOps() != ops) {
+      key.interestOps(ops);
+    }
+  }
+
+  private void close(SelectionKey key) {
+    if (!key.isValid()) {
+      return;
+    }
+
+    key.cancel();
+    if (key.attachment() != null) {
+      clients--;
+    }
+    try {
+      key.channel().close();
+    } catch (final IOException e) {
+      // already closed
+    }
+  }
+}
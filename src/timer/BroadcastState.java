@@ -0,0 +1,146 @@
+package timer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A snapshot of a running session as mirrored by the {@link BroadcastServer}. Every frame sent to
+ * the clients holds a complete snapshot, so a client that missed some of them only needs the
+ * latest one.
+ * <p>
+ * The frames of the protocol are the length of the rest of the frame (short), the type (byte) and
+ * the payload, all numbers big-endian:
+ * <ul>
+ *   <li>state: the flags (byte, 1 = running, 2 = paused), the index of the current interval (int),
+ *   the deadline of the current step in the server's {@link System#nanoTime()} units (long), the
+ *   time left in the step in ms (int) and the UTF-8 length (short) and bytes of its label,</li>
+ *   <li>ping, sent by a client: its own {@link System#nanoTime()} (long),</li>
+ *   <li>pong, the answer to a ping: the time of the ping (long) and the server's time (long).</li>
+ * </ul>
+ */
+public class BroadcastState {
+  static final byte STATE = 1;
+  static final byte PING = 2;
+  static final byte PONG = 3;
+  static final int PING_SIZE = Short.BYTES + 1 + Long.BYTES;
+  static final int PONG_SIZE = Short.BYTES + 1 + 2 * Long.BYTES;
+  static final int MAX_FRAME = 1024;
+
+  private static final byte RUNNING = 1;
+  private static final byte PAUSED = 2;
+  private static final int MAX_LABEL = 512;
+
+  public static final BroadcastState STOPPED = new BroadcastState(false, false, 0, 0, 0, "");
+
+  private final boolean running;
+  private final boolean paused;
+  private final int index;
+  private final long deadline;
+  private final int remaining;
+  private final String label;
+
+  /**
+   * Creates a snapshot.
+   *
+   * @param running   whether the session is running
+   * @param paused    whether the session is paused
+   * @param index     the index of the current interval
+   * @param deadline  the end of the current step in {@link System#nanoTime()} units of the server
+   * @param remaining the time left in the current step in ms, which counts while paused
+   * @param label     the label of the current step
+   */
+  public BroadcastState(boolean running, boolean paused, int index, long deadline, int remaining,
+    String label) {
+    this.running = running;
+    this.paused = paused;
+    this.index = index;
+    this.deadline = deadline;
+    this.remaining = remaining;
+    this.label = label;
+  }
+
+  /**
+   * Takes a snapshot of the given session.
+   *
+   * @param session the session
+   *
+   * @return the snapshot, {@link #STOPPED} if the session is not running
+   */
+  public static BroadcastState of(Session session) {
+    synchronized (session) {
+      if (!session.isRunning()) {
+        return STOPPED;
+      }
+
+      Interval step = session.getStep();
+      return new BroadcastState(true, session.isPaused(), session.getCurrent(),
+        session.getDeadline(), session.getRemaining(), step != null ? step.getLabel() : "");
+    }
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public long getDeadline() {
+    return deadline;
+  }
+
+  public int getRemaining() {
+    return remaining;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  /**
+   * Encodes this snapshot as a state frame.
+   *
+   * @return the frame, ready to be read
+   */
+  ByteBuffer encode() {
+    byte[] text = label.getBytes(StandardCharsets.UTF_8);
+    if (text.length > MAX_LABEL) {
+      String cut = new String(text, 0, MAX_LABEL, StandardCharsets.UTF_8);
+      text = cut.getBytes(StandardCharsets.UTF_8);
+    }
+
+    int length = 1 + 1 + Integer.BYTES + Long.BYTES + Integer.BYTES + Short.BYTES + text.length;
+    ByteBuffer frame = ByteBuffer.allocate(Short.BYTES + length);
+    frame.putShort((short) length);
+    frame.put(STATE);
+    frame.put((byte) ((running ? RUNNING : 0) | (paused ? PAUSED : 0)));
+    frame.putInt(index);
+    frame.putLong(deadline);
+    frame.putInt(remaining);
+    frame.putShort((short) text.length).put(text);
+    return frame.flip();
+  }
+
+  /**
+   * Decodes the payload of a state frame.
+   *
+   * @param payload the frame after its type
+   *
+   * @return the snapshot
+   */
+  static BroadcastState decode(ByteBuffer payload) {
+    byte flags = payload.get();
+    int index = payload.getInt();
+    long deadline = payload.getLong();
+    int remaining = payload.getInt();
+    byte[] text = new byte[Short.toUnsignedInt(payload.getShort())];
+    payload.get(text);
+    return new BroadcastState((flags & RUNNING) != 0, (flags & PAUSED) != 0, index, deadline,
+      remaining, new String(text, StandardCharsets.UTF_8));
+  }
+}
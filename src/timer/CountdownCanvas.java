@@ -0,0 +1,263 @@
+package timer;
+
+import javafx.geometry.Bounds;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+
+/**
+ * Shows a countdown like {@code mm:ss} on a canvas, as a lighter alternative to a large label.
+ * The digits and the colon are rasterized once into an atlas for the current size, and each update
+ * only copies the cells of the characters that changed from it - no text layout, CSS or relayout
+ * happens per tick. The atlas is rasterized again only when the size of the region or the output
+ * scale of the window changes.
+ * <p>
+ * The font grows with the region, so the countdown fills whatever space the layout gives it.
+ */
+public class CountdownCanvas extends Region {
+  private static final String GLYPHS = "0123456789:";
+  private static final int COLON = 10;
+  // metrics are measured once at this size and scaled, glyph metrics are linear in the font size
+  private static final double REFERENCE_SIZE = 100;
+
+  private final String family;
+  private final FontWeight weight;
+  private final double prefSize;
+  private final Canvas canvas;
+  private final double digitWidth;
+  private final double colonWidth;
+  private final double lineHeight;
+
+  private Paint fill;
+  private String text;
+  private char[] shown;
+
+  // the atlas and the size it was rasterized for
+  private WritableImage atlas;
+  private double fontSize;
+  private double scale;
+  private double originX;
+  private double originY;
+
+  /**
+   * Creates the countdown with the bold system font.
+   *
+   * @param prefSize the font size the preferred size of the region is based on
+   */
+  public CountdownCanvas(double prefSize) {
+    this("System", FontWeight.BOLD, prefSize);
+  }
+
+  /**
+   * Creates the countdown.
+   *
+   * @param family   the font family
+   * @param weight   the font weight
+   * @param prefSize the font size the preferred size of the region is based on
+   */
+  public CountdownCanvas(String family, FontWeight weight, double prefSize) {
+    this.family = family;
+    this.weight = weight;
+    this.prefSize = prefSize;
+    this.canvas = new Canvas();
+    this.fill = Color.web("#333333");
+    this.text = "";
+    this.shown = new char[0];
+
+    Font font = Font.font(family, weight, REFERENCE_SIZE);
+    double widest = 0;
+    for (int i = 0; i < COLON; i++) {
+      widest = Math.max(widest, measure(GLYPHS.substring(i, i + 1), font).getWidth());
+    }
+    // digits share one cell width, so the countdown doesn't wobble when they change
+    this.digitWidth = widest / REFERENCE_SIZE;
+    this.colonWidth = measure(":", font).getWidth() / REFERENCE_SIZE;
+    this.lineHeight = measure(GLYPHS, font).getHeight() / REFERENCE_SIZE;
+
+    getChildren().add(canvas);
+  }
+
+  /**
+   * Shows the given text. Only the characters that differ from the ones shown are drawn.
+   *
+   * @param text digits and colons, like {@code 05:00}
+   *
+   * @throws IllegalArgumentException if the text contains any other character
+   */
+  public void setText(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (GLYPHS.indexOf(text.charAt(i)) < 0) {
+        throw new IllegalArgumentException("Invalid character");
+      }
+    }
+
+    boolean resized = text.length() != this.text.length();
+    this.text = text;
+    if (resized) {
+      // the characters have to be centered again
+      shown = new char[0];
+      requestLayout();
+    } else {
+      draw();
+    }
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Sets the color of the countdown, which rasterizes the atlas again.
+   *
+   * @param fill the color
+   */
+  public void setFill(Paint fill) {
+    this.fill = fill;
+    atlas = null;
+    requestLayout();
+  }
+
+  protected double computePrefWidth(double height) {
+    return snappedLeftInset() + Math.ceil(textWidth() * prefSize) + snappedRightInset();
+  }
+
+  protected double computePrefHeight(double width) {
+    return snappedTopInset() + Math.ceil(lineHeight * prefSize) + snappedBottomInset();
+  }
+
+  protected double computeMinWidth(double height) {
+    return snappedLeftInset() + snappedRightInset();
+  }
+
+  protected double computeMinHeight(double width) {
+    return snappedTopInset() + snappedBottomInset();
+  }
+
+  protected void layoutChildren() {
+    double x = snappedLeftInset();
+    double y = snappedTopInset();
+    double width = Math.max(0, getWidth() - x - snappedRightInset());
+    double height = Math.max(0, getHeight() - y - snappedBottomInset());
+    canvas.relocate(x, y);
+    if (canvas.getWidth() != width || canvas.getHeight() != height) {
+      canvas.setWidth(width);
+      canvas.setHeight(height);
+      shown = new char[0];
+    }
+
+    // whole points only, so small changes of the size reuse the atlas
+    double size = Math.floor(Math.min(height / lineHeight, width / textWidth()));
+    Window window = getScene() != null ? getScene().getWindow() : null;
+    double outputScale = window != null ? window.getOutputScaleX() : 1;
+    if (atlas == null || size != fontSize || outputScale != scale) {
+      fontSize = size;
+      scale = outputScale;
+      rasterize();
+      shown = new char[0];
+    }
+
+    if (shown.length != text.length()) {
+      canvas.getGraphicsContext2D().clearRect(0, 0, width, height);
+      double drawn = 0;
+      for (int i = 0; i < text.length(); i++) {
+        drawn += cellWidth(GLYPHS.indexOf(text.charAt(i)));
+      }
+      originX = Math.round((width - drawn) / 2);
+      originY = Math.round((height - lineHeight * fontSize) / 2);
+      shown = new char[text.length()];
+    }
+    draw();
+  }
+
+  /**
+   * Rasterizes every glyph into one row of cells at the current font size and output scale. The
+   * colon gets a narrower cell of its own.
+   */
+  private void rasterize() {
+    atlas = null;
+    if (fontSize < 1) {
+      return;
+    }
+
+    double cell = Math.ceil(digitWidth * fontSize);
+    double height = Math.ceil(lineHeight * fontSize);
+    Canvas glyphs = new Canvas(cell * COLON + Math.ceil(colonWidth * fontSize), height);
+    GraphicsContext gc = glyphs.getGraphicsContext2D();
+    gc.setFont(Font.font(family, weight, fontSize));
+    gc.setFill(fill);
+    gc.setTextAlign(TextAlignment.CENTER);
+    gc.setTextBaseline(VPos.TOP);
+    for (int i = 0; i < GLYPHS.length(); i++) {
+      gc.fillText(GLYPHS.substring(i, i + 1), cellX(i) + cellWidth(i) / 2, 0);
+    }
+
+    // rasterized at the output scale, so the copies stay sharp on high density screens
+    SnapshotParameters parameters = new SnapshotParameters();
+    parameters.setFill(Color.TRANSPARENT);
+    parameters.setTransform(Transform.scale(scale, scale));
+    atlas = glyphs.snapshot(parameters, new WritableImage(
+      (int) Math.ceil(glyphs.getWidth() * scale), (int) Math.ceil(height * scale)));
+  }
+
+  private void draw() {
+    if (atlas == null || shown.length != text.length()) {
+      return;
+    }
+
+    GraphicsContext gc = canvas.getGraphicsContext2D();
+    double height = Math.ceil(lineHeight * fontSize);
+    double x = originX;
+    for (int i = 0; i < shown.length; i++) {
+      char c = text.charAt(i);
+      int glyph = GLYPHS.indexOf(c);
+      double width = cellWidth(glyph);
+      if (shown[i] != c) {
+        shown[i] = c;
+        gc.clearRect(x, originY, width, height);
+        gc.drawImage(atlas, cellX(glyph) * scale, 0, width * scale, height * scale, x, originY,
+          width, height);
+      }
+      x += width;
+    }
+  }
+
+  private double cellX(int glyph) {
+    return Math.ceil(digitWidth * fontSize) * glyph;
+  }
+
+  private double cellWidth(int glyph) {
+    return Math.ceil((glyph == COLON ? colonWidth : digitWidth) * fontSize);
+  }
+
+  /**
+   * Returns the width of the text at a font size of one point.
+   */
+  private double textWidth() {
+    double width = 0;
+    for (int i = 0; i < text.length(); i++) {
+      width += text.charAt(i) == ':' ? colonWidth : digitWidth;
+    }
+    // until there is a text, size the region for mm:ss
+    if (text.isEmpty()) {
+      width = 4 * digitWidth + colonWidth;
+    }
+    return width;
+  }
+
+  private static Bounds measure(String text, Font font) {
+    Text node = new Text(text);
+    node.setFont(font);
+    return node.getLayoutBounds();
+  }
+}
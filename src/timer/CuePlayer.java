@@ -0,0 +1,200 @@
+package timer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays the sounds of interval transitions, independent of the audio API doing the actual playing.
+ * Every sound file is decoded only once and kept in a small LRU cache. Cues are armed ahead of time
+ * for the deadline they belong to and played from a dedicated thread, so a busy UI thread can't
+ * delay them.
+ * <p>
+ * A preset can override the default sounds with files next to the preset file named
+ * <i>preset</i>.done.wav and <i>preset</i>.end.wav. These are loaded into the same cache the first
+ * time they are needed.
+ *
+ * @param <T> the type of the decoded sounds
+ */
+public abstract class CuePlayer<T> {
+  private static final int CAPACITY = 16;
+
+  public enum Cue {
+    // played at the end of every interval
+    Done("done.wav", ".done.wav", 1),
+    // played additionally at the end of the last interval
+    End("timer.wav", ".end.wav", 4);
+
+    private final String defaultFile;
+    private final String presetSuffix;
+    private final int cycleCount;
+
+    Cue(String defaultFile, String presetSuffix, int cycleCount) {
+      this.defaultFile = defaultFile;
+      this.presetSuffix = presetSuffix;
+      this.cycleCount = cycleCount;
+    }
+  }
+
+  private static class Armed {
+    final Future<?> future;
+    final long deadline;
+
+    Armed(Future<?> future, long deadline) {
+      this.future = future;
+      this.deadline = deadline;
+    }
+  }
+
+  private final Map<String, T> cache;
+  private final ScheduledThreadPoolExecutor executor;
+  private final List<Armed> armed;
+  private final long lead;
+  private volatile String preset;
+
+  /**
+   * Creates the cue player. Subclasses should call {@link #preload()} once they are initialized.
+   *
+   * @param lead how long before the deadline a cue should start playing in nanoseconds, to make up
+   *             for the latency of the audio output
+   */
+  protected CuePlayer(long lead) {
+    this.cache = new LinkedHashMap<>(CAPACITY, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+        if (size() <= CAPACITY) {
+          return false;
+        }
+        if (eldest.getValue() != null) {
+          release(eldest.getValue());
+        }
+        return true;
+      }
+    };
+    this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "audio-cues");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.setRemoveOnCancelPolicy(true);
+    this.armed = new ArrayList<>();
+    this.lead = lead;
+  }
+
+  /**
+   * Decodes the given sound file.
+   *
+   * @param filename   the path of the file
+   * @param cycleCount how many times the sound is played in a row
+   *
+   * @return the decoded sound; an implementation that can't play some sounds may return null
+   * for them, which is cached and passed to {@link #playSound(Object)} like any other sound
+   */
+  protected abstract T decode(String filename, int cycleCount);
+
+  /**
+   * Frees the resources of a decoded sound once it is evicted from the cache. It has been the
+   * least recently used sound, so it isn't expected to be playing anymore. Does nothing by
+   * default.
+   *
+   * @param sound the evicted sound, never null
+   */
+  protected void release(T sound) {
+  }
+
+  /**
+   * Plays a decoded sound, called on the thread of the player.
+   *
+   * @param sound the sound, null if it couldn't be decoded
+   */
+  protected abstract void playSound(T sound);
+
+  /**
+   * Decodes the default cues right away.
+   */
+  protected void preload() {
+    for (Cue cue : Cue.values()) {
+      sound(cue.defaultFile, cue.cycleCount);
+    }
+  }
+
+  /**
+   * Switches to the cues of the given preset. Cues the preset doesn't override fall back to the
+   * defaults.
+   *
+   * @param path the path of the preset file without the extension, or null for the defaults
+   */
+  public void usePreset(String path) {
+    preset = path;
+  }
+
+  /**
+   * Plays the given cue right away.
+   *
+   * @param cue the cue to play
+   */
+  public void play(Cue cue) {
+    String filename = resolve(cue);
+    executor.execute(() -> playSound(sound(filename, cue.cycleCount)));
+  }
+
+  /**
+   * Arms the given cue to be played at the specified deadline. The sound is decoded right away if
+   * it isn't cached yet.
+   *
+   * @param cue      the cue to play
+   * @param deadline the point in time to play it at in {@link System#nanoTime()} units
+   */
+  public synchronized void schedule(Cue cue, long deadline) {
+    String filename = resolve(cue);
+    executor.execute(() -> sound(filename, cue.cycleCount));
+
+    long delay = deadline - lead - System.nanoTime();
+    Future<?> future = executor.schedule(() -> playSound(sound(filename, cue.cycleCount)),
+      Math.max(0, delay), TimeUnit.NANOSECONDS);
+    armed.add(new Armed(future, deadline));
+  }
+
+  /**
+   * Disarms every cue whose deadline hasn't passed yet.
+   */
+  public synchronized void cancel() {
+    long now = System.nanoTime();
+    for (Iterator<Armed> it = armed.iterator(); it.hasNext(); ) {
+      Armed a = it.next();
+      if (a.deadline - now > 0) {
+        a.future.cancel(false);
+      }
+      it.remove();
+    }
+  }
+
+  private String resolve(Cue cue) {
+    String path = preset;
+    if (path != null) {
+      String custom = path + cue.presetSuffix;
+      if (new File(custom).isFile()) {
+        return custom;
+      }
+    }
+    return cue.defaultFile;
+  }
+
+  private T sound(String filename, int cycleCount) {
+    synchronized (cache) {
+      if (cache.containsKey(filename)) {
+        return cache.get(filename);
+      }
+
+      // a sound that can't be decoded is cached as well, so it isn't tried again
+      T sound = decode(filename, cycleCount);
+      cache.put(filename, sound);
+      return sound;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package timer;
+
+/**
+ * This class contains static functions for converting durations between milliseconds and the mm:ss
+ * format without regular expressions or intermediate objects. Formatting returns one of 3,600
+ * strings that are built once when the class is loaded, parsing looks at the characters directly.
+ */
+public final class DurationCodec {
+  public static final int LENGTH = 5;
+
+  private static final int MAX_SECONDS = 60 * 60 - 1;
+  private static final String[] STRINGS = new String[MAX_SECONDS + 1];
+
+  static {
+    char[] buffer = new char[LENGTH];
+    for (int secs = 0; secs <= MAX_SECONDS; secs++) {
+      write(secs, buffer, 0);
+      STRINGS[secs] = new String(buffer);
+    }
+  }
+
+  private DurationCodec() {
+  }
+
+  /**
+   * Parses a duration in the format mm:ss. Only the format is checked, the range of the result is
+   * up to the caller.
+   *
+   * @param duration the duration to parse
+   *
+   * @return the duration in ms, or -1 if the format is not correct
+   */
+  public static int parse(CharSequence duration) {
+    if (duration == null || duration.length() != LENGTH) {
+      return -1;
+    }
+    return parse(duration, 0);
+  }
+
+  /**
+   * Parses a duration in the format mm:ss starting at the given offset. Characters after the
+   * duration are ignored.
+   *
+   * @param text   the text containing the duration
+   * @param offset the index of the first character of the duration
+   *
+   * @return the duration in ms, or -1 if the format is not correct
+   */
+  public static int parse(CharSequence text, int offset) {
+    if (offset < 0 || text.length() - offset < LENGTH || text.charAt(offset + 2) != ':') {
+      return -1;
+    }
+
+    int m1 = digit(text.charAt(offset));
+    int m2 = digit(text.charAt(offset + 1));
+    int s1 = digit(text.charAt(offset + 3));
+    int s2 = digit(text.charAt(offset + 4));
+
+    if ((m1 | m2 | s1 | s2) < 0) {
+      return -1;
+    }
+
+    return ((m1 * 10 + m2) * 60 + s1 * 10 + s2) * 1000;
+  }
+
+  /**
+   * Formats a duration as mm:ss, rounding down to whole seconds. The returned string is shared and
+   * no new objects are created.
+   *
+   * @param ms the duration in ms, between 0 and 59:59
+   *
+   * @return the formatted duration
+   *
+   * @throws IllegalArgumentException if the duration is out of range
+   */
+  public static String format(int ms) {
+    if (ms < 0 || ms / 1000 > MAX_SECONDS) {
+      throw new IllegalArgumentException("Duration must be between 00:00-59:59");
+    }
+    return STRINGS[ms / 1000];
+  }
+
+  /**
+   * Writes a duration as mm:ss into the given buffer, rounding down to whole seconds.
+   *
+   * @param ms     the duration in ms, between 0 and 59:59
+   * @param buffer the buffer to write to
+   * @param offset the index of the first character to write
+   *
+   * @throws IllegalArgumentException if the duration is out of range
+   */
+  public static void format(int ms, char[] buffer, int offset) {
+    if (ms < 0 || ms / 1000 > MAX_SECONDS) {
+      throw new IllegalArgumentException("Duration must be between 00:00-59:59");
+    }
+    write(ms / 1000, buffer, offset);
+  }
+
+  /**
+   * Formats a duration of any length as mm:ss, or h:mm:ss if it is an hour or longer. Meant for
+   * totals, which unlike single intervals are not limited to 59:59.
+   *
+   * @param ms the duration in ms
+   *
+   * @return the formatted duration
+   *
+   * @throws IllegalArgumentException if the duration is negative
+   */
+  public static String formatLong(long ms) {
+    if (ms < 0) {
+      throw new IllegalArgumentException("Duration must not be negative");
+    }
+
+    long hours = ms / 3_600_000;
+    String rest = STRINGS[(int) (ms % 3_600_000 / 1000)];
+    return hours == 0 ? rest : hours + ":" + rest;
+  }
+
+  private static void write(int secs, char[] buffer, int offset) {
+    int mins = secs / 60;
+    secs %= 60;
+
+    buffer[offset] = (char) ('0' + mins / 10);
+    buffer[offset + 1] = (char) ('0' + mins % 10);
+    buffer[offset + 2] = ':';
+    buffer[offset + 3] = (char) ('0' + secs / 10);
+    buffer[offset + 4] = (char) ('0' + secs % 10);
+  }
+
+  private static int digit(char c) {
+    return c >= '0' && c <= '9' ? c - '0' : -1;
+  }
+}
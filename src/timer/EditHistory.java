@@ -0,0 +1,201 @@
+package timer;
+
+import javafx.collections.ListChangeListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An unlimited undo and redo history of an {@link IntervalList}. The history is a log of deltas
+ * taken from the change events of the list: every edit keeps only the intervals it removed and
+ * added and where, never a copy of the whole list. An edit of a single interval costs two interval
+ * objects, whatever the size of the program, and undoing it replays only that delta.
+ * <p>
+ * Each change event of the list is one edit, so a bulk edit like removing a selection is undone in
+ * one step. Changes made while the history is disabled, e.g. while a preset is being loaded, are
+ * not recorded; clear the history afterwards, since its edits no longer fit the list.
+ */
+public class EditHistory {
+  // one sub-change of a change event
+  private static final class Step {
+    private final int from;
+    private final List<Interval> removed;
+    private final List<Interval> added;
+    // new index of each moved interval, null unless the step is a permutation
+    private final int[] permutation;
+
+    private Step(int from, List<Interval> removed, List<Interval> added, int[] permutation) {
+      this.from = from;
+      this.removed = removed;
+      this.added = added;
+      this.permutation = permutation;
+    }
+  }
+
+  private final IntervalList list;
+  private final Deque<Step[]> undo;
+  private final Deque<Step[]> redo;
+  private Runnable onChanged;
+  private boolean enabled;
+  private boolean applying;
+
+  /**
+   * Creates an empty history and starts recording the edits of the given list.
+   *
+   * @param list the list
+   */
+  public EditHistory(IntervalList list) {
+    this.list = list;
+    this.undo = new ArrayDeque<>();
+    this.redo = new ArrayDeque<>();
+    this.enabled = true;
+    list.addListener(this::changed);
+  }
+
+  /**
+   * Sets a callback that is called whenever {@link #canUndo()} or {@link #canRedo()} may have
+   * changed.
+   *
+   * @param onChanged the callback
+   */
+  public void setOnChanged(Runnable onChanged) {
+    this.onChanged = onChanged;
+  }
+
+  /**
+   * Enables or disables recording. Undo and redo still work while recording is disabled, but only
+   * as long as the list wasn't changed in the meantime.
+   *
+   * @param enabled true to record the edits of the list
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean canUndo() {
+    return !undo.isEmpty();
+  }
+
+  public boolean canRedo() {
+    return !redo.isEmpty();
+  }
+
+  /**
+   * Forgets every edit.
+   */
+  public void clear() {
+    undo.clear();
+    redo.clear();
+    notifyChanged();
+  }
+
+  /**
+   * Reverts the last edit that wasn't undone yet. Does nothing if there is none.
+   */
+  public void undo() {
+    Step[] edit = undo.poll();
+    if (edit == null) {
+      return;
+    }
+
+    apply(() -> {
+      // sub-changes build on each other, so they are reverted last to first
+      for (int i = edit.length - 1; i >= 0; i--) {
+        revert(edit[i]);
+      }
+    });
+    redo.push(edit);
+    notifyChanged();
+  }
+
+  /**
+   * Repeats the last edit that was undone. Does nothing if there is none, or if the list was edited
+   * since.
+   */
+  public void redo() {
+    Step[] edit = redo.poll();
+    if (edit == null) {
+      return;
+    }
+
+    apply(() -> {
+      for (Step step : edit) {
+        replay(step);
+      }
+    });
+    undo.push(edit);
+    notifyChanged();
+  }
+
+  private void changed(ListChangeListener.Change<? extends Interval> c) {
+    if (!enabled || applying) {
+      return;
+    }
+
+    List<Step> steps = new ArrayList<>();
+    while (c.next()) {
+      if (c.wasPermutated()) {
+        int[] permutation = new int[c.getTo() - c.getFrom()];
+        for (int i = c.getFrom(); i < c.getTo(); i++) {
+          permutation[i - c.getFrom()] = c.getPermutation(i);
+        }
+        steps.add(new Step(c.getFrom(), null, null, permutation));
+      } else if (!c.wasUpdated()) {
+        steps.add(new Step(c.getFrom(), new ArrayList<>(c.getRemoved()),
+          new ArrayList<>(c.getAddedSubList()), null));
+      }
+    }
+    if (steps.isEmpty()) {
+      return;
+    }
+
+    undo.push(steps.toArray(new Step[0]));
+    redo.clear();
+    notifyChanged();
+  }
+
+  /**
+   * Applies the given edits to the list as a single change, without recording them.
+   */
+  private void apply(Runnable edits) {
+    applying = true;
+    try {
+      list.batch(edits);
+    } finally {
+      applying = false;
+    }
+  }
+
+  private void revert(Step step) {
+    if (step.permutation != null) {
+      // the interval at a position before the step is found where the step moved it
+      List<Interval> before = new ArrayList<>(step.permutation.length);
+      for (int target : step.permutation) {
+        before.add(list.get(target));
+      }
+      list.replaceBlock(step.from, step.from + before.size(), before);
+    } else {
+      list.replaceBlock(step.from, step.from + step.added.size(), step.removed);
+    }
+  }
+
+  private void replay(Step step) {
+    if (step.permutation != null) {
+      Interval[] after = new Interval[step.permutation.length];
+      for (int i = 0; i < after.length; i++) {
+        after[step.permutation[i] - step.from] = list.get(step.from + i);
+      }
+      list.replaceBlock(step.from, step.from + after.length, List.of(after));
+    } else {
+      list.replaceBlock(step.from, step.from + step.removed.size(), step.added);
+    }
+  }
+
+  private void notifyChanged() {
+    if (onChanged != null) {
+      onChanged.run();
+    }
+  }
+}
@@ -0,0 +1,302 @@
+package timer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Running totals of the time spent per label, per day and per week, kept up to date as records are
+ * appended to the {@link HistoryJournal}. The totals are saved together with the position in the
+ * journal they cover, so only the records appended after that have to be read again on the next
+ * launch, no matter how long the history is.
+ * <p>
+ * Days are local to the time zone of the system, weeks start on Monday. All methods are
+ * thread-safe.
+ */
+public class HistoryAggregates {
+  private static final int MAGIC = 0x4A544841;
+  private static final int VERSION = 1;
+
+  // label -> epoch day -> {running time in ms, number of intervals}
+  private final Map<String, TreeMap<Long, long[]>> days;
+  // label -> epoch day of the Monday -> {running time in ms, number of intervals}
+  private final Map<String, TreeMap<Long, long[]>> weeks;
+  private final ZoneId zone;
+  private long offset;
+
+  public HistoryAggregates() {
+    this(ZoneId.systemDefault());
+  }
+
+  /**
+   * Creates empty totals.
+   *
+   * @param zone the time zone the days are counted in
+   */
+  public HistoryAggregates(ZoneId zone) {
+    this.days = new HashMap<>();
+    this.weeks = new HashMap<>();
+    this.zone = zone;
+  }
+
+  /**
+   * Adds a record to the totals of the day and the week it ended in.
+   *
+   * @param record the record
+   */
+  public synchronized void add(HistoryRecord record) {
+    LocalDate day = Instant.ofEpochMilli(record.getEndTime()).atZone(zone).toLocalDate();
+    add(days, record.getLabel(), day.toEpochDay(), record.getRunning());
+    add(weeks, record.getLabel(), weekOf(day), record.getRunning());
+  }
+
+  public synchronized Set<String> getLabels() {
+    return new TreeSet<>(days.keySet());
+  }
+
+  /**
+   * Returns the time spent on the given label on a single day.
+   *
+   * @param label the label
+   * @param day   the day
+   *
+   * @return the running time in ms
+   */
+  public synchronized long getDay(String label, LocalDate day) {
+    return get(days, label, day.toEpochDay())[0];
+  }
+
+  /**
+   * Returns the time spent on the given label in a week.
+   *
+   * @param label the label
+   * @param day   any day of the week
+   *
+   * @return the running time in ms
+   */
+  public synchronized long getWeek(String label, LocalDate day) {
+    return get(weeks, label, weekOf(day))[0];
+  }
+
+  /**
+   * Returns the number of intervals with the given label that ended in a week.
+   *
+   * @param label the label
+   * @param day   any day of the week
+   *
+   * @return the number of intervals
+   */
+  public synchronized long getWeekCount(String label, LocalDate day) {
+    return get(weeks, label, weekOf(day))[1];
+  }
+
+  /**
+   * Returns the time spent on the given label between two days. Whole weeks in the range are read
+   * from the weekly totals, so this takes at most a few steps per week.
+   *
+   * @param label the label
+   * @param from  the first day, inclusive
+   * @param to    the last day, inclusive
+   *
+   * @return the running time in ms
+   */
+  public synchronized long getTotal(String label, LocalDate from, LocalDate to) {
+    long first = from.toEpochDay();
+    long last = to.toEpochDay();
+    long total = 0;
+
+    // the days before the first whole week and after the last one
+    long weeksFrom = weekOf(from) == first ? first : weekOf(from) + 7;
+    long weeksTo = weekOf(to) + 6 == last ? last + 1 : weekOf(to);
+    if (weeksFrom >= weeksTo) {
+      return sum(days, label, first, last + 1);
+    }
+
+    total += sum(days, label, first, weeksFrom);
+    total += sum(weeks, label, weeksFrom, weeksTo);
+    total += sum(days, label, weeksTo, last + 1);
+    return total;
+  }
+
+  /**
+   * Returns the time spent on every label on a single day.
+   *
+   * @param day the day
+   *
+   * @return the running time in ms by label, without labels that weren't run that day
+   */
+  public synchronized Map<String, Long> getDayTotals(LocalDate day) {
+    return totals(days, day.toEpochDay());
+  }
+
+  /**
+   * Returns the time spent on every label in a week.
+   *
+   * @param day any day of the week
+   *
+   * @return the running time in ms by label, without labels that weren't run that week
+   */
+  public synchronized Map<String, Long> getWeekTotals(LocalDate day) {
+    return totals(weeks, weekOf(day));
+  }
+
+  /**
+   * Returns the position in the journal up to which the records are included.
+   *
+   * @return the offset in bytes
+   */
+  public synchronized long getOffset() {
+    return offset;
+  }
+
+  synchronized void setOffset(long offset) {
+    this.offset = offset;
+  }
+
+  synchronized void clear() {
+    days.clear();
+    weeks.clear();
+    offset = 0;
+  }
+
+  /**
+   * Writes the totals to the given file, replacing it atomically if possible.
+   *
+   * @param file the file
+   *
+   * @return true if the totals were written
+   */
+  public synchronized boolean save(Path file) {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(offset);
+      write(out, days);
+      write(out, weeks);
+    } catch (final IOException e) {
+      return false;
+    }
+
+    try {
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return true;
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Replaces the totals with those read from the given file. A missing or broken file leaves the
+   * totals empty, so the whole journal is read again.
+   *
+   * @param file the file
+   */
+  public synchronized void read(Path file) {
+    clear();
+    if (!Files.exists(file)) {
+      return;
+    }
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return;
+      }
+      offset = in.readLong();
+      read(in, days);
+      read(in, weeks);
+    } catch (final IOException e) {
+      clear();
+    }
+  }
+
+  private static long weekOf(LocalDate day) {
+    return day.toEpochDay() - (day.getDayOfWeek().getValue() - 1);
+  }
+
+  private static void add(Map<String, TreeMap<Long, long[]>> totals, String label, long key,
+    long ms) {
+    long[] total = totals.computeIfAbsent(label, l -> new TreeMap<>())
+      .computeIfAbsent(key, k -> new long[2]);
+    total[0] += ms;
+    total[1]++;
+  }
+
+  private static long[] get(Map<String, TreeMap<Long, long[]>> totals, String label, long key) {
+    TreeMap<Long, long[]> byKey = totals.get(label);
+    long[] total = byKey != null ? byKey.get(key) : null;
+    return total != null ? total : new long[2];
+  }
+
+  private static long sum(Map<String, TreeMap<Long, long[]>> totals, String label, long from,
+    long to) {
+    TreeMap<Long, long[]> byKey = totals.get(label);
+    if (byKey == null || from >= to) {
+      return 0;
+    }
+
+    long sum = 0;
+    for (long[] total : byKey.subMap(from, to).values()) {
+      sum += total[0];
+    }
+    return sum;
+  }
+
+  private static Map<String, Long> totals(Map<String, TreeMap<Long, long[]>> totals, long key) {
+    Map<String, Long> result = new TreeMap<>();
+    for (Map.Entry<String, TreeMap<Long, long[]>> entry : totals.entrySet()) {
+      long[] total = entry.getValue().get(key);
+      if (total != null) {
+        result.put(entry.getKey(), total[0]);
+      }
+    }
+    return result;
+  }
+
+  private static void write(DataOutputStream out, Map<String, TreeMap<Long, long[]>> totals)
+    throws IOException {
+    out.writeInt(totals.size());
+    for (Map.Entry<String, TreeMap<Long, long[]>> entry : totals.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue().size());
+      for (Map.Entry<Long, long[]> total : entry.getValue().entrySet()) {
+        out.writeLong(total.getKey());
+        out.writeLong(total.getValue()[0]);
+        out.writeLong(total.getValue()[1]);
+      }
+    }
+  }
+
+  private static void read(DataInputStream in, Map<String, TreeMap<Long, long[]>> totals)
+    throws IOException {
+    int labels = in.readInt();
+    for (int i = 0; i < labels; i++) {
+      TreeMap<Long, long[]> byKey = new TreeMap<>();
+      totals.put(in.readUTF(), byKey);
+
+      int count = in.readInt();
+      for (int j = 0; j < count; j++) {
+        byKey.put(in.readLong(), new long[] {in.readLong(), in.readLong()});
+      }
+    }
+  }
+}
@@ -0,0 +1,328 @@
+package timer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * An append-only journal of every interval that was run. Records are written through a memory
+ * mapped region of the file by a background thread, {@link #append(HistoryRecord)} only queues
+ * them and never blocks, so it can be called from the timing path. The {@link HistoryAggregates}
+ * are updated as records are written.
+ * <p>
+ * The file starts with the magic bytes "JTHJ" and a version byte, followed by the records. Each
+ * record is the length of its payload (int) and the payload: the end time in ms since the epoch
+ * (long), the planned duration (int), the actual and the paused duration (long) and the UTF-8
+ * length (short) and bytes of the preset name and of the label. The length is written after the
+ * payload, so a record that was cut short by a crash has the length 0 and ends the journal. The
+ * mapped region grows in chunks, so the file usually ends with unused zero bytes.
+ */
+public class HistoryJournal {
+  public static final String JOURNAL_FILE = "journal.bin";
+  public static final String AGGREGATES_FILE = "aggregates.bin";
+
+  private static final byte[] MAGIC = {'J', 'T', 'H', 'J'};
+  private static final byte VERSION = 1;
+  private static final int HEADER_SIZE = MAGIC.length + 1;
+  private static final int CHUNK = 1 << 20;
+  private static final int MAX_TEXT = 4096;
+
+  // queued by close() to stop the writer after every record before it
+  private static final HistoryRecord END = new HistoryRecord(0, "", "", 0, 0, 0);
+
+  private final Path dir;
+  private final FileChannel channel;
+  private final HistoryAggregates aggregates;
+  private final BlockingQueue<HistoryRecord> queue;
+  private final Thread thread;
+
+  private MappedByteBuffer region;
+
+  // the end of the last complete record, read by other threads
+  private volatile long end;
+
+  /**
+   * Opens the journal in the given directory, creating it if necessary. The saved aggregates are
+   * brought up to date with the records appended after they were saved.
+   *
+   * @param dir the directory of the journal
+   *
+   * @throws IllegalArgumentException if the journal cannot be opened or has an unknown format
+   */
+  public HistoryJournal(Path dir) {
+    this.dir = dir;
+    this.aggregates = new HistoryAggregates();
+    this.queue = new LinkedBlockingQueue<>();
+
+    try {
+      Files.createDirectories(dir);
+      channel = FileChannel.open(dir.resolve(JOURNAL_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+
+    try {
+      if (channel.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put(VERSION);
+        channel.write(header.flip(), 0);
+      } else if (!hasHeader()) {
+        channel.close();
+        throw new IllegalArgumentException("Invalid format");
+      }
+
+      aggregates.read(dir.resolve(AGGREGATES_FILE));
+      if (aggregates.getOffset() < HEADER_SIZE || aggregates.getOffset() > channel.size()) {
+        aggregates.clear();
+        aggregates.setOffset(HEADER_SIZE);
+      }
+
+      end = recover(aggregates.getOffset());
+      aggregates.setOffset(end);
+      map(end, CHUNK);
+    } catch (final IOException e) {
+      close(channel);
+      throw new IllegalArgumentException("Invalid format");
+    }
+
+    thread = new Thread(this::run, "history-writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues a record to be written. This method never blocks.
+   *
+   * @param record the record
+   */
+  public void append(HistoryRecord record) {
+    queue.offer(record);
+  }
+
+  public HistoryAggregates getAggregates() {
+    return aggregates;
+  }
+
+  /**
+   * Reads every record written so far, oldest first. Records that are still queued are not
+   * included.
+   *
+   * @param consumer the consumer of the records
+   *
+   * @throws IllegalArgumentException if the journal cannot be read
+   */
+  public void read(Consumer<HistoryRecord> consumer) {
+    long limit = end;
+    try (var in = new DataInputStream(new BufferedInputStream(
+      Channels.newInputStream(FileChannel.open(dir.resolve(JOURNAL_FILE)))))) {
+      in.skipNBytes(HEADER_SIZE);
+
+      byte[] payload = new byte[0];
+      long position = HEADER_SIZE;
+      while (position < limit) {
+        int length = in.readInt();
+        if (payload.length < length) {
+          payload = new byte[length];
+        }
+        in.readFully(payload, 0, length);
+        consumer.accept(decode(ByteBuffer.wrap(payload, 0, length)));
+        position += Integer.BYTES + length;
+      }
+    } catch (final EOFException | BufferUnderflowException e) {
+      throw new IllegalArgumentException("Invalid format");
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+  }
+
+  /**
+   * Writes every queued record, saves the aggregates and closes the journal.
+   */
+  public void close() {
+    queue.offer(END);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    region.force();
+    aggregates.save(dir.resolve(AGGREGATES_FILE));
+    close(channel);
+  }
+
+  private void run() {
+    while (true) {
+      HistoryRecord record;
+      try {
+        record = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      // write everything that is queued before forcing it to the disk once
+      do {
+        if (record == END) {
+          return;
+        }
+        write(record);
+      } while ((record = queue.poll()) != null);
+
+      region.force();
+    }
+  }
+
+  private void write(HistoryRecord record) {
+    ByteBuffer payload = encode(record);
+    int size = Integer.BYTES + payload.remaining();
+
+    try {
+      if (region.remaining() < size) {
+        // the batch is only forced through the new mapping, so the old one is forced here
+        region.force();
+        map(end, Math.max(CHUNK, size));
+      }
+    } catch (final IOException e) {
+      // the disk is full or gone, the record is lost but the journal stays consistent
+      return;
+    }
+
+    int start = region.position();
+    region.position(start + Integer.BYTES);
+    region.put(payload);
+    region.putInt(start, size - Integer.BYTES);
+
+    end += size;
+    aggregates.add(record);
+    aggregates.setOffset(end);
+  }
+
+  private void map(long position, int size) throws IOException {
+    region = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+  }
+
+  /**
+   * Reads the records from the given position to the end of the journal into the aggregates.
+   *
+   * @return the end of the last complete record
+   */
+  private long recover(long position) throws IOException {
+    long size = channel.size();
+    while (position < size) {
+      int window = (int) Math.min(size - position, Integer.MAX_VALUE);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+
+      int read = 0;
+      while (window - read >= Integer.BYTES) {
+        int length = buffer.getInt(read);
+        if (length <= 0 || length > size - position - read - Integer.BYTES) {
+          // an empty or broken record ends the journal
+          return position + read;
+        }
+        if (length > window - read - Integer.BYTES) {
+          // continues in the next window
+          break;
+        }
+
+        try {
+          aggregates.add(decode(buffer.slice(read + Integer.BYTES, length)));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+          return position + read;
+        }
+        read += Integer.BYTES + length;
+      }
+
+      if (read == 0) {
+        break;
+      }
+      position += read;
+    }
+    return position;
+  }
+
+  private boolean hasHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    if (header.remaining() < HEADER_SIZE) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (header.get(i) != MAGIC[i]) {
+        return false;
+      }
+    }
+    return header.get(MAGIC.length) == VERSION;
+  }
+
+  private static ByteBuffer encode(HistoryRecord record) {
+    byte[] preset = text(record.getPreset());
+    byte[] label = text(record.getLabel());
+
+    ByteBuffer buffer = ByteBuffer.allocate(
+      Long.BYTES + Integer.BYTES + 2 * Long.BYTES + 2 * Short.BYTES + preset.length + label.length);
+    buffer.putLong(record.getEndTime());
+    buffer.putInt(record.getPlanned());
+    buffer.putLong(record.getActual());
+    buffer.putLong(record.getPaused());
+    buffer.putShort((short) preset.length).put(preset);
+    buffer.putShort((short) label.length).put(label);
+    return buffer.flip();
+  }
+
+  private static HistoryRecord decode(ByteBuffer buffer) {
+    long endTime = buffer.getLong();
+    int planned = buffer.getInt();
+    long actual = buffer.getLong();
+    long paused = buffer.getLong();
+    String preset = text(buffer);
+    String label = text(buffer);
+    return new HistoryRecord(endTime, preset, label, planned, actual, paused);
+  }
+
+  private static byte[] text(String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_TEXT) {
+      // cut at a character boundary, so the rest still decodes
+      int length = MAX_TEXT;
+      while ((bytes[length] & 0xC0) == 0x80) {
+        length--;
+      }
+      return Arrays.copyOf(bytes, length);
+    }
+    return bytes;
+  }
+
+  private static String text(ByteBuffer buffer) {
+    int length = Short.toUnsignedInt(buffer.getShort());
+    if (length > MAX_TEXT) {
+      throw new IllegalArgumentException("Invalid format");
+    }
+
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void close(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (final IOException e) {
+      // nothing left to do
+    }
+  }
+}
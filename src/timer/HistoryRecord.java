@@ -0,0 +1,71 @@
+package timer;
+
+/**
+ * A single interval that was actually run, as stored in the {@link HistoryJournal}.
+ */
+public class HistoryRecord {
+  private final long endTime;
+  private final String preset;
+  private final String label;
+  private final int planned;
+  private final long actual;
+  private final long paused;
+
+  /**
+   * Creates a record.
+   *
+   * @param endTime the time the interval ended in ms since the epoch
+   * @param preset  the name of the preset that was run
+   * @param label   the label of the interval
+   * @param planned the duration of the interval in ms
+   * @param actual  the time from the start to the end of the interval in ms, including pauses
+   * @param paused  the time the interval was paused in ms
+   */
+  public HistoryRecord(long endTime, String preset, String label, int planned, long actual,
+    long paused) {
+    this.endTime = endTime;
+    this.preset = preset;
+    this.label = label;
+    this.planned = planned;
+    this.actual = actual;
+    this.paused = paused;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  public String getPreset() {
+    return preset;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public int getPlanned() {
+    return planned;
+  }
+
+  public long getActual() {
+    return actual;
+  }
+
+  public long getPaused() {
+    return paused;
+  }
+
+  /**
+   * Returns the time the interval was actually running.
+   *
+   * @return the actual duration without pauses in ms
+   */
+  public long getRunning() {
+    return Math.max(0, actual - paused);
+  }
+
+  public String toString() {
+    return preset + ": " + label + " " + DurationCodec.formatLong(getRunning()) + " of "
+      + DurationCodec.formatLong(planned);
+  }
+}
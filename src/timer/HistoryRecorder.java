@@ -0,0 +1,103 @@
+package timer;
+
+import java.util.function.Consumer;
+
+/**
+ * Turns the events of a {@link Session} into a {@link HistoryRecord} for every step that was run,
+ * including steps that were cut short by skipping or stopping. Inside a {@link RepeatGroup} every
+ * step of every pass is a record of its own.
+ * <p>
+ * The session calls its listeners while holding its lock, so the events never overlap. The
+ * records are handed to the consumer on the thread of the event, which must not block.
+ */
+public class HistoryRecorder implements SessionListener {
+  private static final long NANOS_PER_MS = 1_000_000L;
+
+  private final Consumer<HistoryRecord> consumer;
+  private volatile String preset;
+
+  // the step that is running, with its start in System.nanoTime() units
+  private Interval step;
+  private long stepStart;
+  private long pausedAt;
+  private long paused;
+
+  /**
+   * Creates a recorder.
+   *
+   * @param consumer the consumer of the records, e.g. {@link HistoryJournal#append(HistoryRecord)}
+   */
+  public HistoryRecorder(Consumer<HistoryRecord> consumer) {
+    this.consumer = consumer;
+    this.preset = "";
+  }
+
+  /**
+   * Sets the name of the preset written to the records of the next run.
+   *
+   * @param preset the name of the preset
+   */
+  public void setPreset(String preset) {
+    this.preset = preset != null ? preset : "";
+  }
+
+  public void started(Session session) {
+    // a run started over the previous one
+    end(System.nanoTime());
+    begin(session, System.nanoTime());
+  }
+
+  public void transition(Session session, int index, long time) {
+    end(time);
+    begin(session, time);
+  }
+
+  public void jumped(Session session, int index) {
+    long now = System.nanoTime();
+    end(now);
+    begin(session, now);
+    if (session.isPaused()) {
+      pausedAt = now;
+    }
+  }
+
+  public void paused(Session session) {
+    pausedAt = System.nanoTime();
+  }
+
+  public void resumed(Session session) {
+    if (pausedAt != 0) {
+      paused += System.nanoTime() - pausedAt;
+      pausedAt = 0;
+    }
+  }
+
+  public void stopped(Session session) {
+    end(System.nanoTime());
+  }
+
+  public void finished(Session session, long time) {
+    end(time);
+  }
+
+  private void begin(Session session, long time) {
+    step = session.getStep();
+    stepStart = time;
+    pausedAt = 0;
+    paused = 0;
+  }
+
+  private void end(long time) {
+    if (step == null) {
+      return;
+    }
+
+    if (pausedAt != 0) {
+      paused += time - pausedAt;
+    }
+    long endTime = System.currentTimeMillis() - (System.nanoTime() - time) / NANOS_PER_MS;
+    consumer.accept(new HistoryRecord(endTime, preset, step.getLabel(), step.getDuration(),
+      Math.max(0, time - stepStart) / NANOS_PER_MS, paused / NANOS_PER_MS));
+    step = null;
+  }
+}
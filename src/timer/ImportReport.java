@@ -0,0 +1,150 @@
+package timer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import, with one entry per preset file found in the source, in the order
+ * of their paths. See {@link PresetImporter}.
+ */
+public class ImportReport {
+  private static final int MAX_DESCRIBED_ENTRIES = 10;
+
+  public enum Status {
+    // written into the preset directory
+    Imported,
+    // has the same content as a preset in the directory or an earlier file of the same import
+    Duplicate,
+    // could be read, but contains errors or no intervals
+    Invalid,
+    // could not be read or written
+    Failed
+  }
+
+  public static class Entry {
+    private final String source;
+    private final Status status;
+    private final String filename;
+    private final List<PresetError> errors;
+    private final List<Interval> intervals;
+
+    Entry(String source, Status status, String filename, List<PresetError> errors,
+          List<Interval> intervals) {
+      this.source = source;
+      this.status = status;
+      this.filename = filename;
+      this.errors = errors;
+      this.intervals = intervals;
+    }
+
+    /**
+     * Returns the path of the file inside the imported directory or archive.
+     *
+     * @return the relative path
+     */
+    public String getSource() {
+      return source;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    /**
+     * Returns the name of the file in the preset directory: the one written for imported presets
+     * or the one with the same content for duplicates.
+     *
+     * @return the file name, or null for any other status
+     */
+    public String getFilename() {
+      return filename;
+    }
+
+    /**
+     * Returns the errors found in an invalid preset.
+     *
+     * @return the errors, empty for any other status
+     */
+    public List<PresetError> getErrors() {
+      return errors;
+    }
+
+    /**
+     * Returns the intervals of an imported preset.
+     *
+     * @return the intervals, or null for any other status
+     */
+    public List<Interval> getIntervals() {
+      return intervals;
+    }
+
+    public String toString() {
+      switch (status) {
+        case Imported:
+          return source + ": imported as " + filename;
+        case Duplicate:
+          return source + ": same as " + filename;
+        case Invalid:
+          return source + ": " + (errors.isEmpty() ? "There are no intervals" : errors.get(0));
+        default:
+          return source + ": could not be imported";
+      }
+    }
+  }
+
+  private final List<Entry> entries;
+
+  ImportReport(List<Entry> entries) {
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the number of files with the given status.
+   *
+   * @param status the status
+   *
+   * @return the number of entries
+   */
+  public int getCount(Status status) {
+    int count = 0;
+    for (Entry entry : entries) {
+      if (entry.status == status) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Describes the import in a few lines, suitable for showing to the user: the number of files per
+   * status, followed by the files that were not imported.
+   *
+   * @return the description
+   */
+  public String describe() {
+    StringBuilder description = new StringBuilder();
+    description.append(getCount(Status.Imported)).append(" imported, ")
+      .append(getCount(Status.Duplicate)).append(" duplicates, ")
+      .append(getCount(Status.Invalid)).append(" invalid, ")
+      .append(getCount(Status.Failed)).append(" failed");
+
+    int shown = 0;
+    int problems = getCount(Status.Invalid) + getCount(Status.Failed);
+    for (Entry entry : entries) {
+      if (entry.status == Status.Invalid || entry.status == Status.Failed) {
+        if (shown == MAX_DESCRIBED_ENTRIES) {
+          description.append("\n... and ").append(problems - shown).append(" more");
+          break;
+        }
+        description.append('\n').append(entry);
+        shown++;
+      }
+    }
+
+    return description.toString();
+  }
+}
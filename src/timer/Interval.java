@@ -18,14 +18,33 @@ public class Interval {
    * @param duration duration of the interval
    */
   public Interval(String duration, String label) {
-    this.label = label;
+    this(DurationCodec.parse(duration), label);
+  }
 
-    if (isValidDuration(duration)) {
-      this.duration = stringToMs(duration);
-    } else {
+  /**
+   * Creates an interval from the given label and duration in ms. Duration should be between 00:01
+   * and 59:59.
+   *
+   * @param label    label of the interval
+   * @param duration duration of the interval in ms
+   */
+  public Interval(int duration, String label) {
+    if (duration < MIN_DURATION || duration > MAX_DURATION) {
       throw new IllegalArgumentException("Duration must be between 00:01-59:59");
     }
 
+    this.label = label;
+    this.duration = duration;
+    this.state = IntervalState.Default;
+  }
+
+  /**
+   * Creates an interval without a duration of its own, for {@link RepeatGroup}.
+   *
+   * @param label label of the interval
+   */
+  Interval(String label) {
+    this.label = label;
     this.state = IntervalState.Default;
   }
 
@@ -33,7 +52,7 @@ public class Interval {
    * Creates an interval labeled "Interval" with the minimal duration 00:01.
    */
   public Interval() {
-    this(msToString(MIN_DURATION), "Interval");
+    this(MIN_DURATION, "Interval");
   }
 
   public String getLabel() {
@@ -48,9 +67,39 @@ public class Interval {
     return duration;
   }
 
+  /**
+   * Returns how long the interval runs in total, which for a single interval is its duration.
+   *
+   * @return the total duration in ms
+   */
+  public long getTotalDuration() {
+    return duration;
+  }
+
+  /**
+   * Returns a copy of this interval in the default state.
+   *
+   * @return the copy
+   */
+  public Interval copy() {
+    return new Interval(duration, label);
+  }
+
+  /**
+   * Returns a copy of this interval with the given label.
+   *
+   * @param label the label of the copy
+   *
+   * @return the copy
+   */
+  public Interval withLabel(String label) {
+    return new Interval(duration, label);
+  }
+
   public void setDuration(String duration) {
-    if (isValidDuration(duration)) {
-      this.duration = stringToMs(duration);
+    int ms = DurationCodec.parse(duration);
+    if (ms >= MIN_DURATION && ms <= MAX_DURATION) {
+      this.duration = ms;
     } else {
       throw new IllegalArgumentException(
         "Duration must be between " + MIN_DURATION + "-" + MAX_DURATION);
@@ -65,48 +114,52 @@ public class Interval {
     this.state = state;
   }
 
+  /**
+   * Intervals are equal if they have the same duration and label, regardless of their state. Lists
+   * like {@link IntervalList} create a new interval on every access, which are then equal.
+   */
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    Interval interval = (Interval) o;
+    return duration == interval.duration && label.equals(interval.label);
+  }
+
+  public int hashCode() {
+    return 31 * duration + label.hashCode();
+  }
+
   public String toString() {
     return msToString(duration) + " " + label;
   }
 
   public static boolean isValidDuration(String duration) {
-    try {
-      int ms = stringToMs(duration);
-      return ms >= MIN_DURATION && ms <= MAX_DURATION;
-    } catch (IllegalArgumentException e) {
-      return false;
-    }
+    int ms = DurationCodec.parse(duration);
+    return ms >= MIN_DURATION && ms <= MAX_DURATION;
   }
 
   public static String msToString(int ms) {
     if (ms < 0 || ms > MAX_DURATION) {
       throw new IllegalArgumentException("Duration must be between 0-" + MAX_DURATION);
     } else {
-      int secs = ms / 1000 % 60;
-      int mins = ms / 1000 / 60;
-
-      return String.format("%02d:%02d", mins, secs);
+      return DurationCodec.format(ms);
     }
   }
 
   public static int stringToMs(String duration) {
-    if (!duration.matches("\\d\\d:\\d\\d")) {
-      throw new IllegalArgumentException("Invalid format");
-    }
-
-    try {
-      int mins = Integer.valueOf(duration.substring(0, 2));
-      int secs = Integer.valueOf(duration.substring(3, 5));
+    int ms = DurationCodec.parse(duration);
 
-      int ms = (mins * 60 + secs) * 1000;
-
-      if (ms < MIN_DURATION || ms > MAX_DURATION) {
-        throw new IllegalArgumentException("Duration must be between 00:01-59:59");
-      } else {
-        return ms;
-      }
-    } catch (NumberFormatException e) {
+    if (ms < 0) {
       throw new IllegalArgumentException("Invalid format");
+    } else if (ms < MIN_DURATION || ms > MAX_DURATION) {
+      throw new IllegalArgumentException("Duration must be between 00:01-59:59");
+    } else {
+      return ms;
     }
   }
 }
@@ -8,11 +8,36 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 
 public class IntervalCell extends ListCell<Interval> {
+  // shared by all cells, so restyling a cell doesn't create any objects
+  private static final Color DARK = Color.web("#413E4A");
+  private static final Background DARK_BACKGROUND = background(DARK);
+  private static final Background DONE_BACKGROUND = background(Color.LIGHTGREY);
+  private static final Background DEFAULT_BACKGROUND = background(Color.WHITE);
+
+  private final IntervalList.StateListener stateListener = (index, oldState) -> {
+    if (index == getIndex()) {
+      updateStyle();
+    }
+  };
+  private IntervalList bound;
   String prevText;
 
   protected void updateItem(Interval item, boolean empty) {
     super.updateItem(item, empty);
 
+    // follow the states kept by the list, so a transition restyles only the affected cells
+    IntervalList list = getListView() != null && getListView().getItems() instanceof IntervalList
+      ? (IntervalList) getListView().getItems() : null;
+    if (list != bound) {
+      if (bound != null) {
+        bound.removeStateListener(stateListener);
+      }
+      bound = list;
+      if (list != null) {
+        list.addStateListener(stateListener);
+      }
+    }
+
     if (item == null) {
       setText("");
       setBackground(Background.EMPTY);
@@ -20,37 +45,60 @@ public class IntervalCell extends ListCell<Interval> {
     }
 
     setText(item.toString());
-    setTextFill(Color.BLACK);
+    updateStyle();
+  }
 
-    Color color;
+  public void updateSelected(boolean selected) {
+    super.updateSelected(selected);
+    updateStyle();
+  }
+
+  private void updateStyle() {
+    Interval item = getItem();
+    if (item == null || isEmpty()) {
+      return;
+    }
+
+    IntervalState state = bound != null && getIndex() >= 0 && getIndex() < bound.size()
+      ? bound.getState(getIndex()) : item.getState();
 
     if (isSelected()) {
-      color = Color.web("#413E4A");
+      setBackground(DARK_BACKGROUND);
       setTextFill(Color.WHITE);
     } else {
-      switch (item.getState()) {
+      switch (state) {
         case Current:
-          color = Color.web("#413E4A");
+          setBackground(DARK_BACKGROUND);
           setTextFill(Color.WHITE);
           break;
         case Previous:
         case Finished:
-          color = Color.LIGHTGREY;
+          setBackground(DONE_BACKGROUND);
+          setTextFill(Color.BLACK);
           break;
         default:
-          color = Color.WHITE;
+          setBackground(DEFAULT_BACKGROUND);
+          setTextFill(Color.BLACK);
       }
     }
+  }
 
-    setBackground(new Background(new BackgroundFill(color, CornerRadii.EMPTY, Insets.EMPTY)));
+  private static Background background(Color color) {
+    return new Background(new BackgroundFill(color, CornerRadii.EMPTY, Insets.EMPTY));
   }
 
   public void startEdit() {
+    // groups are shown collapsed and edited through the context menu of the list
+    if (getItem() instanceof RepeatGroup) {
+      return;
+    }
+
     prevText = getText();
     super.startEdit();
 
-    TextField durationField = new TextField(prevText.substring(0, 5));
-    TextField labelField = new TextField(prevText.substring(6));
+    Interval item = getItem();
+    TextField durationField = new TextField(DurationCodec.format(item.getDuration()));
+    TextField labelField = new TextField(item.getLabel());
     durationField.setPromptText("mm:ss");
     labelField.setPromptText("label");
 
@@ -62,9 +110,9 @@ public class IntervalCell extends ListCell<Interval> {
     HBox.setHgrow(labelField, Priority.ALWAYS);
 
     durationField.setOnAction(actionEvent -> {
-      String duration = durationField.getText();
-      if (Interval.isValidDuration(duration)) {
-        commitEdit(new Interval(durationField.getText(), labelField.getText()));
+      int duration = DurationCodec.parse(durationField.getText());
+      if (duration >= Interval.MIN_DURATION && duration <= Interval.MAX_DURATION) {
+        commitEdit(new Interval(duration, labelField.getText()));
       } else {
         cancelEdit();
       }
@@ -0,0 +1,618 @@
+package timer;
+
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * An observable list of intervals with bulk edits. Every bulk edit takes linear time and is
+ * reported to the listeners as a single change, so editing large programs doesn't flood the list
+ * view with events.
+ * <p>
+ * The intervals are not stored as objects, but in primitive columns: the duration, the id of the
+ * label in a {@link LabelPool} and the state. {@link #get(int)} creates a new interval from the
+ * columns on every call, so only the intervals that are actually shown exist as objects. Repeat
+ * groups are kept as they are, marked by the duration 0 and the id of the group instead of a label.
+ * <p>
+ * Since the returned intervals are only views, their state is kept by the list, see
+ * {@link #setState(int, IntervalState)}. Edits of durations and labels replace the affected
+ * intervals, so the list view sees them and earlier snapshots of the list keep their values.
+ */
+public class IntervalList extends ModifiableObservableListBase<Interval> {
+  private static final int GROUP = 0;
+  private static final int INITIAL_CAPACITY = 16;
+  private static final IntervalState[] STATES = IntervalState.values();
+
+  /**
+   * Listens to changes of the state of the intervals, e.g. so a list cell showing an interval can
+   * update its style without the whole list being refreshed.
+   */
+  public interface StateListener {
+    void stateChanged(int index, IntervalState oldState);
+  }
+
+  private LabelPool labels;
+  private List<RepeatGroup> groups;
+  private Map<RepeatGroup, Integer> groupIds;
+  private final List<StateListener> stateListeners;
+
+  private int[] durations;
+  private int[] labelIds;
+  private byte[] states;
+  private int size;
+
+  public IntervalList() {
+    labels = new LabelPool();
+    groups = new ArrayList<>();
+    groupIds = new IdentityHashMap<>();
+    stateListeners = new ArrayList<>();
+    durations = new int[INITIAL_CAPACITY];
+    labelIds = new int[INITIAL_CAPACITY];
+    states = new byte[INITIAL_CAPACITY];
+  }
+
+  public Interval get(int index) {
+    checkIndex(index);
+    return view(index);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public IntervalState getState(int index) {
+    checkIndex(index);
+    return STATES[states[index]];
+  }
+
+  /**
+   * Sets the state of an interval and notifies the state listeners if it changed. This is not a
+   * change of the list itself.
+   *
+   * @param index the index of the interval
+   * @param state the new state
+   */
+  public void setState(int index, IntervalState state) {
+    IntervalState oldState = getState(index);
+    if (oldState == state) {
+      return;
+    }
+
+    states[index] = (byte) state.ordinal();
+    for (int i = 0; i < stateListeners.size(); i++) {
+      stateListeners.get(i).stateChanged(index, oldState);
+    }
+  }
+
+  public void addStateListener(StateListener listener) {
+    stateListeners.add(listener);
+  }
+
+  public void removeStateListener(StateListener listener) {
+    stateListeners.remove(listener);
+  }
+
+  /**
+   * Returns an unmodifiable copy of the list, e.g. to be saved on another thread. Only the columns
+   * are copied, the intervals are created when they are read.
+   *
+   * @return the copy
+   */
+  public List<Interval> snapshot() {
+    return new Snapshot(Arrays.copyOf(durations, size), Arrays.copyOf(labelIds, size),
+      labels.toArray(), groups.toArray(new RepeatGroup[0]));
+  }
+
+  public boolean addAll(Collection<? extends Interval> c) {
+    return addAll(size, c);
+  }
+
+  /**
+   * Inserts all the given intervals at the specified position.
+   *
+   * @param index the index of the first inserted interval
+   * @param c     the intervals to insert
+   *
+   * @return true if the list changed
+   */
+  public boolean addAll(int index, Collection<? extends Interval> c) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (c.isEmpty()) {
+      return false;
+    }
+
+    beginChange();
+    try {
+      int count = c.size();
+      open(index, count);
+      int i = index;
+      for (Interval interval : c) {
+        store(i++, interval);
+      }
+      nextAdd(index, index + count);
+    } finally {
+      endChange();
+    }
+    return true;
+  }
+
+  /**
+   * Removes the intervals at the given indices. The indices may be in any order and contain
+   * duplicates.
+   *
+   * @param indices the indices of the intervals to remove
+   */
+  public void removeIndices(int... indices) {
+    if (indices.length == 0) {
+      return;
+    }
+
+    int[] sorted = indices.clone();
+    Arrays.sort(sorted);
+    if (sorted[0] < 0 || sorted[sorted.length - 1] >= size) {
+      throw new IndexOutOfBoundsException("Indices must be between 0 and " + size);
+    }
+
+    beginChange();
+    try {
+      // move the kept intervals forward in one pass, reporting each removed run of indices
+      int write = sorted[0];
+      int read = sorted[0];
+      int next = 0;
+      while (read < size) {
+        if (next < sorted.length && sorted[next] == read) {
+          int start = read;
+          while (next < sorted.length && sorted[next] <= read) {
+            if (sorted[next] == read) {
+              read++;
+            }
+            next++;
+          }
+          nextRemove(write, views(start, read));
+        } else {
+          durations[write] = durations[read];
+          labelIds[write] = labelIds[read];
+          states[write++] = states[read++];
+        }
+      }
+      size = write;
+      trimPools();
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * Moves a block of intervals, so that its first interval ends up at the given index.
+   *
+   * @param from   the index of the first interval of the block
+   * @param to     the index after the last interval of the block
+   * @param target the index of the first interval of the block after the move
+   */
+  public void moveBlock(int from, int to, int target) {
+    checkRange(from, to);
+    int length = to - from;
+    if (target < 0 || target + length > size) {
+      throw new IndexOutOfBoundsException("Target must be between 0 and " + (size - length));
+    }
+    if (target == from || length == 0) {
+      return;
+    }
+
+    // the affected range is the block plus the intervals it moves past
+    int low = Math.min(from, target);
+    int high = Math.max(to, target + length);
+    int[] permutation = new int[high - low];
+    for (int i = low; i < high; i++) {
+      if (i >= from && i < to) {
+        permutation[i - low] = i - from + target;
+      } else if (target < from) {
+        permutation[i - low] = i + length;
+      } else {
+        permutation[i - low] = i - length;
+      }
+    }
+
+    beginChange();
+    try {
+      int[] movedDurations = Arrays.copyOfRange(durations, low, high);
+      int[] movedLabels = Arrays.copyOfRange(labelIds, low, high);
+      byte[] movedStates = Arrays.copyOfRange(states, low, high);
+      for (int i = 0; i < permutation.length; i++) {
+        durations[permutation[i]] = movedDurations[i];
+        labelIds[permutation[i]] = movedLabels[i];
+        states[permutation[i]] = movedStates[i];
+      }
+      nextPermutation(low, high, permutation);
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * Inserts copies of a block of intervals right after it.
+   *
+   * @param from the index of the first interval of the block
+   * @param to   the index after the last interval of the block
+   */
+  public void duplicateBlock(int from, int to) {
+    checkRange(from, to);
+    int length = to - from;
+    if (length == 0) {
+      return;
+    }
+
+    beginChange();
+    try {
+      open(to, length);
+      System.arraycopy(durations, from, durations, to, length);
+      System.arraycopy(labelIds, from, labelIds, to, length);
+      nextAdd(to, to + length);
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * Replaces a block of intervals with the given ones.
+   *
+   * @param from         the index of the first interval of the block
+   * @param to           the index after the last interval of the block
+   * @param replacements the intervals to put in place of the block
+   */
+  public void replaceBlock(int from, int to, Collection<? extends Interval> replacements) {
+    checkRange(from, to);
+
+    beginChange();
+    try {
+      List<Interval> removed = views(from, to);
+      close(from, to - from);
+      open(from, replacements.size());
+      int i = from;
+      for (Interval interval : replacements) {
+        store(i++, interval);
+      }
+      nextReplace(from, i, removed);
+      trimPools();
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * Runs the given edits of this list and reports them to the listeners as a single change.
+   *
+   * @param edits the edits
+   */
+  public void batch(Runnable edits) {
+    beginChange();
+    try {
+      edits.run();
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * Sets the duration of the intervals at the given indices. Repeat groups have no duration of
+   * their own and are left as they are.
+   *
+   * @param indices  the indices of the intervals
+   * @param duration the new duration in ms, between 00:01 and 59:59
+   */
+  public void setDurations(int[] indices, int duration) {
+    if (duration < Interval.MIN_DURATION || duration > Interval.MAX_DURATION) {
+      throw new IllegalArgumentException("Duration must be between 00:01-59:59");
+    }
+
+    beginChange();
+    try {
+      for (int i : indices) {
+        checkIndex(i);
+        if (durations[i] != GROUP) {
+          Interval old = view(i);
+          durations[i] = duration;
+          nextSet(i, old);
+        }
+      }
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * Sets the label of the intervals at the given indices.
+   *
+   * @param indices the indices of the intervals
+   * @param label   the new label
+   */
+  public void setLabels(int[] indices, String label) {
+    int id = labels.intern(label);
+
+    beginChange();
+    try {
+      for (int i : indices) {
+        checkIndex(i);
+        Interval old = view(i);
+        if (durations[i] == GROUP) {
+          labelIds[i] = groupId((RepeatGroup) old.withLabel(label));
+        } else {
+          labelIds[i] = id;
+        }
+        nextSet(i, old);
+      }
+      trimPools();
+    } finally {
+      endChange();
+    }
+  }
+
+  protected void removeRange(int fromIndex, int toIndex) {
+    checkRange(fromIndex, toIndex);
+    if (fromIndex == toIndex) {
+      return;
+    }
+
+    beginChange();
+    try {
+      List<Interval> removed = views(fromIndex, toIndex);
+      close(fromIndex, toIndex - fromIndex);
+      nextRemove(fromIndex, removed);
+      trimPools();
+    } finally {
+      endChange();
+    }
+  }
+
+  protected void doAdd(int index, Interval element) {
+    open(index, 1);
+    store(index, element);
+  }
+
+  protected Interval doSet(int index, Interval element) {
+    Interval old = view(index);
+    store(index, element);
+    trimPools();
+    return old;
+  }
+
+  protected Interval doRemove(int index) {
+    Interval old = view(index);
+    close(index, 1);
+    trimPools();
+    return old;
+  }
+
+  private Interval view(int index) {
+    if (durations[index] == GROUP) {
+      return groups.get(labelIds[index]);
+    }
+    return new Interval(durations[index], labels.get(labelIds[index]));
+  }
+
+  private List<Interval> views(int from, int to) {
+    List<Interval> views = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      views.add(view(i));
+    }
+    return views;
+  }
+
+  private void store(int index, Interval interval) {
+    if (interval instanceof RepeatGroup) {
+      durations[index] = GROUP;
+      labelIds[index] = groupId((RepeatGroup) interval);
+    } else {
+      durations[index] = interval.getDuration();
+      labelIds[index] = labels.intern(interval.getLabel());
+    }
+    states[index] = 0;
+  }
+
+  private int groupId(RepeatGroup group) {
+    Integer id = groupIds.get(group);
+    if (id == null) {
+      id = groups.size();
+      groupIds.put(group, id);
+      groups.add(group);
+    }
+    return id;
+  }
+
+  /**
+   * Makes room for the given number of intervals at the specified index. The new slots are in the
+   * default state.
+   */
+  private void open(int index, int count) {
+    if (size + count > durations.length) {
+      int capacity = Math.max(size + count, durations.length + (durations.length >> 1));
+      durations = Arrays.copyOf(durations, capacity);
+      labelIds = Arrays.copyOf(labelIds, capacity);
+      states = Arrays.copyOf(states, capacity);
+    }
+
+    System.arraycopy(durations, index, durations, index + count, size - index);
+    System.arraycopy(labelIds, index, labelIds, index + count, size - index);
+    System.arraycopy(states, index, states, index + count, size - index);
+    Arrays.fill(states, index, index + count, (byte) 0);
+    size += count;
+  }
+
+  private void close(int index, int count) {
+    System.arraycopy(durations, index + count, durations, index, size - index - count);
+    System.arraycopy(labelIds, index + count, labelIds, index, size - index - count);
+    System.arraycopy(states, index + count, states, index, size - index - count);
+    size -= count;
+  }
+
+  /**
+   * Returns the number of labels and groups in the pools, including those no interval uses
+   * anymore.
+   *
+   * @return the size of the pools
+   */
+  int getPoolSize() {
+    return labels.size() + groups.size();
+  }
+
+  // labels and groups are never removed one by one, but all at once when the list is emptied, or
+  // by compacting the pools once they have grown to twice the size of the list
+  private void trimPools() {
+    if (size == 0) {
+      labels.clear();
+      groups.clear();
+      groupIds.clear();
+    } else if (getPoolSize() > 2 * size + INITIAL_CAPACITY) {
+      compactPools();
+    }
+  }
+
+  /**
+   * Rebuilds the pools with only the labels and groups that are in use. After that at least as
+   * many labels or groups have to be added again before the next compaction, so its cost is
+   * amortized over the edits that grew the pools.
+   */
+  private void compactPools() {
+    LabelPool usedLabels = new LabelPool();
+    List<RepeatGroup> usedGroups = new ArrayList<>();
+    Map<RepeatGroup, Integer> usedGroupIds = new IdentityHashMap<>();
+    int[] labelMap = new int[labels.size()];
+    Arrays.fill(labelMap, -1);
+
+    for (int i = 0; i < size; i++) {
+      if (durations[i] == GROUP) {
+        RepeatGroup group = groups.get(labelIds[i]);
+        Integer id = usedGroupIds.get(group);
+        if (id == null) {
+          id = usedGroups.size();
+          usedGroupIds.put(group, id);
+          usedGroups.add(group);
+        }
+        labelIds[i] = id;
+      } else {
+        if (labelMap[labelIds[i]] < 0) {
+          labelMap[labelIds[i]] = usedLabels.intern(labels.get(labelIds[i]));
+        }
+        labelIds[i] = labelMap[labelIds[i]];
+      }
+    }
+
+    labels = usedLabels;
+    groups = usedGroups;
+    groupIds = usedGroupIds;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  private void checkRange(int from, int to) {
+    if (from < 0 || to > size || from > to) {
+      throw new IndexOutOfBoundsException(
+        "Range " + from + "-" + to + " is not within 0-" + size);
+    }
+  }
+
+  /**
+   * A copy of the columns of a list. Besides being a list itself, it gives {@link Timeline} the
+   * columns, so a compiled timeline needs no interval object per row.
+   */
+  static final class Snapshot extends AbstractList<Interval> implements RandomAccess {
+    private final int[] durations;
+    private final int[] labelIds;
+    private final String[] labels;
+    private final RepeatGroup[] groups;
+
+    private Snapshot(int[] durations, int[] labelIds, String[] labels, RepeatGroup[] groups) {
+      this.durations = durations;
+      this.labelIds = labelIds;
+      this.labels = labels;
+      this.groups = groups;
+    }
+
+    /**
+     * Returns the columns of the given intervals, which are copied unless they are a snapshot
+     * already.
+     *
+     * @param intervals the intervals
+     *
+     * @return the snapshot
+     */
+    static Snapshot of(List<? extends Interval> intervals) {
+      if (intervals instanceof Snapshot) {
+        return (Snapshot) intervals;
+      }
+
+      // every row gets a label of its own, the labels are only referenced
+      int[] durations = new int[intervals.size()];
+      int[] labelIds = new int[durations.length];
+      String[] labels = new String[durations.length];
+      List<RepeatGroup> groups = new ArrayList<>();
+      int i = 0;
+      for (Interval interval : intervals) {
+        if (interval instanceof RepeatGroup) {
+          labelIds[i] = groups.size();
+          groups.add((RepeatGroup) interval);
+        } else {
+          durations[i] = interval.getDuration();
+          labelIds[i] = i;
+          labels[i] = interval.getLabel();
+        }
+        i++;
+      }
+      return new Snapshot(durations, labelIds, labels, groups.toArray(new RepeatGroup[0]));
+    }
+
+    public Interval get(int index) {
+      if (durations[index] == GROUP) {
+        return groups[labelIds[index]];
+      }
+      return new Interval(durations[index], labels[labelIds[index]]);
+    }
+
+    public int size() {
+      return durations.length;
+    }
+
+    /**
+     * Returns the repeat group at the given index.
+     *
+     * @param index the index of the interval
+     *
+     * @return the group, or null if the interval isn't one
+     */
+    RepeatGroup getGroup(int index) {
+      return durations[index] == GROUP ? groups[labelIds[index]] : null;
+    }
+
+    /**
+     * Returns the duration of the interval at the given index, including every repetition of a
+     * group.
+     *
+     * @param index the index of the interval
+     *
+     * @return the duration in ms
+     */
+    long getTotalDuration(int index) {
+      if (durations[index] == GROUP) {
+        return groups[labelIds[index]].getTotalDuration();
+      }
+      return durations[index];
+    }
+
+    int getDuration(int index) {
+      return durations[index];
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package timer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns a small integer id to every distinct label, so a list of intervals only needs to store
+ * the id of each label. Generated programs repeat a handful of labels many times, which then exist
+ * only once.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LabelPool {
+  private final Map<String, Integer> ids;
+  private final List<String> labels;
+
+  public LabelPool() {
+    ids = new HashMap<>();
+    labels = new ArrayList<>();
+  }
+
+  /**
+   * Returns the id of the given label, adding it to the pool if it isn't there yet.
+   *
+   * @param label the label
+   *
+   * @return the id of the label
+   */
+  public int intern(String label) {
+    Integer id = ids.get(label);
+    if (id == null) {
+      id = labels.size();
+      ids.put(label, id);
+      labels.add(label);
+    }
+    return id;
+  }
+
+  public String get(int id) {
+    return labels.get(id);
+  }
+
+  public int size() {
+    return labels.size();
+  }
+
+  /**
+   * Returns all labels, indexed by their ids. The array is a copy, so it can be read by other
+   * threads while the pool keeps growing.
+   *
+   * @return the labels
+   */
+  public String[] toArray() {
+    return labels.toArray(new String[0]);
+  }
+
+  /**
+   * Removes all labels. Ids handed out before must not be used anymore.
+   */
+  public void clear() {
+    ids.clear();
+    labels.clear();
+  }
+}
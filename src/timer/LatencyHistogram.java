@@ -0,0 +1,121 @@
+package timer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in microseconds. Values below 16 us have a bucket of their
+ * own, larger values are split into 8 buckets per power of two, so every percentile is accurate to
+ * within 12.5% while the whole histogram has a fixed size. Recording a value is a single atomic
+ * increment, any number of threads can record and read at the same time.
+ */
+public class LatencyHistogram {
+  private static final int LINEAR = 16;
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = LINEAR + (Long.SIZE - 4 - 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong max;
+
+  public LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKETS);
+    max = new AtomicLong();
+  }
+
+  /**
+   * Records a single latency. Negative values count as 0.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    counts.incrementAndGet(bucket(micros));
+    max.accumulateAndGet(micros, Math::max);
+  }
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the largest recorded value.
+   *
+   * @return the maximum in microseconds, or 0 if nothing was recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns the value below which the given fraction of all recorded values falls. Values recorded
+   * while this method runs may or may not be counted.
+   *
+   * @param fraction the percentile between 0 and 1, e.g. 0.99
+   *
+   * @return the upper bound of the bucket holding the percentile in microseconds, or 0 if nothing
+   * was recorded
+   */
+  public long getPercentile(double fraction) {
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(fraction * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        // the bucket bound may be above the largest value ever recorded
+        return Math.min(upperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Removes all recorded values.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    max.set(0);
+  }
+
+  private static int bucket(long micros) {
+    if (micros < LINEAR) {
+      return (int) micros;
+    }
+
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+    int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+  }
+
+  private static long upperBound(int bucket) {
+    if (bucket < LINEAR) {
+      return bucket;
+    }
+
+    int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+    int sub = (bucket - LINEAR) % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BITS);
+    return (1L << exponent) + (sub + 1) * width - 1;
+  }
+}
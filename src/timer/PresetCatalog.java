@@ -0,0 +1,370 @@
+package timer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An index of the preset files in a directory, kept in the file {@value #INDEX_FILE} inside it.
+ * For every preset file the index holds its modification time, size, number of intervals, total
+ * duration and labels, so the list of presets can be shown and searched without reading any of
+ * them. Only files whose modification time or size changed since the index was written are read
+ * again. The catalog keeps a {@link PresetIndex} up to date with its entries.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class PresetCatalog {
+  public static final String INDEX_FILE = ".catalog";
+
+  private static final int MAGIC = 0x4A544643;
+  private static final int VERSION = 2;
+
+  public static class Entry {
+    private final String filename;
+    private final long modified;
+    private final long size;
+    private final PresetSummary summary;
+
+    Entry(String filename, long modified, long size, PresetSummary summary) {
+      this.filename = filename;
+      this.modified = modified;
+      this.size = size;
+      this.summary = summary;
+    }
+
+    public String getFilename() {
+      return filename;
+    }
+
+    /**
+     * Returns the name of the preset, which is the file name without the extension.
+     *
+     * @return the name of the preset
+     */
+    public String getName() {
+      return filename.substring(0, filename.lastIndexOf('.'));
+    }
+
+    public long getModified() {
+      return modified;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Returns the number of intervals and the total duration of the preset.
+     *
+     * @return the summary, or null if the preset could not be read
+     */
+    public PresetSummary getSummary() {
+      return summary;
+    }
+  }
+
+  private final Path dir;
+  private final Map<String, Entry> entries;
+  private final PresetIndex index;
+  private boolean dirty;
+
+  /**
+   * Creates a catalog of the given directory and reads its index, if there is one. Call
+   * {@link #refresh()} to bring it up to date with the directory.
+   *
+   * @param dir the directory of the presets
+   */
+  public PresetCatalog(Path dir) {
+    this.dir = dir;
+    this.entries = new HashMap<>();
+    this.index = new PresetIndex();
+    this.dirty = false;
+    read();
+  }
+
+  /**
+   * Brings the catalog up to date with the directory. Files that are new or whose modification
+   * time or size changed are summarized again, entries of deleted files are dropped. The index is
+   * written if anything changed.
+   *
+   * @throws IllegalArgumentException if the directory can't be listed
+   */
+  public void refresh() {
+    Set<String> seen = new HashSet<>();
+
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PresetCatalog::isPreset)) {
+      for (Path file : files) {
+        String filename = file.getFileName().toString();
+        seen.add(filename);
+
+        BasicFileAttributes attributes;
+        try {
+          attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+          // removed while listing
+          seen.remove(filename);
+          continue;
+        }
+
+        Entry entry = entries.get(filename);
+        if (entry == null || entry.modified != attributes.lastModifiedTime().toMillis()
+          || entry.size != attributes.size()) {
+          put(summarize(file, attributes));
+          dirty = true;
+        }
+      }
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+
+    for (String filename : new ArrayList<>(entries.keySet())) {
+      if (!seen.contains(filename)) {
+        remove(filename);
+      }
+    }
+    save();
+  }
+
+  /**
+   * Updates the entry of a single preset file, e.g. after it was saved. If the file doesn't exist
+   * anymore, its entry is removed.
+   *
+   * @param filename the name of the preset file inside the directory
+   */
+  public void update(String filename) {
+    Path file = dir.resolve(filename);
+
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      put(summarize(file, attributes));
+    } catch (final IOException e) {
+      remove(filename);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Updates the entry of a preset file that was just saved with the given intervals, without
+   * reading the file again.
+   *
+   * @param filename  the name of the preset file inside the directory
+   * @param intervals the intervals that were saved
+   */
+  public void update(String filename, List<Interval> intervals) {
+    try {
+      BasicFileAttributes attributes =
+        Files.readAttributes(dir.resolve(filename), BasicFileAttributes.class);
+      put(new Entry(filename, attributes.lastModifiedTime().toMillis(), attributes.size(),
+        PresetSummary.of(intervals)));
+    } catch (final IOException e) {
+      remove(filename);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Removes the entry of a preset file.
+   *
+   * @param filename the name of the preset file inside the directory
+   */
+  public void remove(String filename) {
+    if (entries.remove(filename) != null) {
+      index.remove(filename);
+      dirty = true;
+    }
+  }
+
+  /**
+   * Returns the search index over the entries of the catalog.
+   *
+   * @return the index
+   */
+  public PresetIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns whether the entry of a preset file still matches the file, i.e. whether its
+   * modification time and size are the same as when the entry was made.
+   *
+   * @param filename the name of the preset file inside the directory
+   *
+   * @return true if there is an entry and the file hasn't changed since
+   */
+  public boolean isCurrent(String filename) {
+    Entry entry = entries.get(filename);
+    if (entry == null) {
+      return false;
+    }
+
+    try {
+      BasicFileAttributes attributes =
+        Files.readAttributes(dir.resolve(filename), BasicFileAttributes.class);
+      return entry.modified == attributes.lastModifiedTime().toMillis()
+        && entry.size == attributes.size();
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  public Entry get(String filename) {
+    return entries.get(filename);
+  }
+
+  /**
+   * Returns the entry of the preset with the given name, preferring the binary file if there are
+   * files of both formats.
+   *
+   * @param name the name of the preset
+   *
+   * @return the entry, or null if there is no such preset
+   */
+  public Entry find(String name) {
+    Entry binary = entries.get(name + PresetFile.BINARY_EXTENSION);
+    return binary != null ? binary : entries.get(name + PresetFile.EXTENSION);
+  }
+
+  /**
+   * Returns the names of all presets in alphabetical order. A preset that exists in both formats
+   * is listed once.
+   *
+   * @return the sorted names of the presets
+   */
+  public List<String> getNames() {
+    TreeSet<String> names = new TreeSet<>();
+    for (Entry entry : entries.values()) {
+      names.add(entry.getName());
+    }
+    return new ArrayList<>(names);
+  }
+
+  /**
+   * Writes the index if it has changed since it was last read or written. Failing to write it is
+   * not an error, the index is only a cache.
+   */
+  public void save() {
+    if (!dirty) {
+      return;
+    }
+
+    Path index = dir.resolve(INDEX_FILE);
+    Path temp = dir.resolve(INDEX_FILE + ".tmp");
+    try (var out = new DataOutputStream(
+      new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Entry entry : entries.values()) {
+        out.writeUTF(entry.filename);
+        out.writeLong(entry.modified);
+        out.writeLong(entry.size);
+        out.writeBoolean(entry.summary != null);
+        if (entry.summary != null) {
+          out.writeInt(entry.summary.getCount());
+          out.writeLong(entry.summary.getTotalDuration());
+          out.writeInt(entry.summary.getLabels().size());
+          for (String label : entry.summary.getLabels()) {
+            out.writeUTF(label);
+          }
+        }
+      }
+    } catch (final IOException e) {
+      return;
+    }
+
+    try {
+      try {
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING);
+      }
+      dirty = false;
+    } catch (final IOException e) {
+      // keep the index dirty, so it is written again next time
+    }
+  }
+
+  /**
+   * Returns whether the given file name belongs to a preset file.
+   *
+   * @param file the file
+   *
+   * @return true for files ending with one of the preset extensions
+   */
+  public static boolean isPreset(Path file) {
+    String filename = file.getFileName().toString();
+    return filename.endsWith(PresetFile.EXTENSION) || filename.endsWith(
+      PresetFile.BINARY_EXTENSION);
+  }
+
+  private void read() {
+    Path index = dir.resolve(INDEX_FILE);
+    if (!Files.exists(index)) {
+      return;
+    }
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        dirty = true;
+        return;
+      }
+
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String filename = in.readUTF();
+        long modified = in.readLong();
+        long size = in.readLong();
+        PresetSummary summary = null;
+        if (in.readBoolean()) {
+          int intervals = in.readInt();
+          long total = in.readLong();
+          List<String> labels = new ArrayList<>();
+          for (int j = in.readInt(); j > 0; j--) {
+            labels.add(in.readUTF());
+          }
+          summary = new PresetSummary(intervals, total, labels);
+        }
+        put(new Entry(filename, modified, size, summary));
+      }
+    } catch (final IOException e) {
+      // a broken index is simply rebuilt
+      entries.clear();
+      this.index.clear();
+      dirty = true;
+    }
+  }
+
+  private void put(Entry entry) {
+    entries.put(entry.filename, entry);
+    index.put(entry.filename, entry.summary);
+  }
+
+  private static Entry summarize(Path file, BasicFileAttributes attributes) {
+    PresetSummary summary;
+    try {
+      summary = PresetFile.readSummary(file);
+    } catch (IllegalArgumentException e) {
+      summary = null;
+    }
+
+    return new Entry(file.getFileName().toString(), attributes.lastModifiedTime().toMillis(),
+      attributes.size(), summary);
+  }
+}
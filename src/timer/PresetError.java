@@ -0,0 +1,39 @@
+package timer;
+
+/**
+ * A problem found while loading a preset file, with the position it was found at.
+ */
+public class PresetError {
+  private final int line;
+  private final int column;
+  private final String message;
+
+  /**
+   * Creates an error at the given position.
+   *
+   * @param line    the line number, starting at 1
+   * @param column  the column number, starting at 1
+   * @param message the description of the problem
+   */
+  public PresetError(int line, int column, String message) {
+    this.line = line;
+    this.column = column;
+    this.message = message;
+  }
+
+  public int getLine() {
+    return line;
+  }
+
+  public int getColumn() {
+    return column;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public String toString() {
+    return "Line " + line + ", column " + column + ": " + message;
+  }
+}
@@ -1,13 +1,73 @@
 package timer;
 
-import java.io.*;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 /**
- * This class contains static functions for loading and saving timer preset files.
+ * This class contains static functions for loading and saving timer preset files. Presets are
+ * stored either as text, one interval per line, or in a compact binary format (see
+ * {@link BinaryPresetFile}). The format of an existing file is detected from its content.
+ * <p>
+ * In text files a {@link RepeatGroup} starts with a line "repeat N LABEL", where the label is
+ * optional, and ends with a line "end". The intervals in between may be indented.
  */
 public class PresetFile {
   public static final String EXTENSION = ".timer";
+  public static final String BINARY_EXTENSION = ".timerb";
+
+  public enum Format {
+    Text, Binary
+  }
+
+  private static final int MAX_DESCRIBED_ERRORS = 10;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+  private static final String REPEAT = "repeat";
+  private static final String END = "end";
+  private static final String INDENT = "  ";
+
+  // a repeat group whose end hasn't been read yet
+  private static final class OpenGroup {
+    private final int count;
+    private final String label;
+    private final int lineNumber;
+    private final List<Interval> children;
+
+    private OpenGroup(int count, String label, int lineNumber) {
+      this.count = count;
+      this.label = label;
+      this.lineNumber = lineNumber;
+      this.children = new ArrayList<>();
+    }
+  }
 
   /**
    * Loads intervals from the specified file. Each line must be in the format:
@@ -20,44 +80,463 @@ public class PresetFile {
    * @throws IllegalArgumentException if the file is invalid or the format is not correct
    */
   public static ArrayList<Interval> load(String path) {
-    try (var in = new BufferedReader(new FileReader(path))) {
-      ArrayList<Interval> intervals = new ArrayList<>();
+    ArrayList<Interval> intervals = new ArrayList<>();
+    List<PresetError> errors = load(Paths.get(path), intervals::add);
 
-      String line;
-      while ((line = in.readLine()) != null) {
-        if (!line.matches("\\d\\d:\\d\\d .*")) {
-          throw new IllegalArgumentException("Invalid format");
-        }
+    if (!errors.isEmpty()) {
+      throw new IllegalArgumentException(describe(errors));
+    }
+    return intervals;
+  }
+
+  /**
+   * Loads intervals from the specified file and passes each one to the consumer as soon as it is
+   * parsed. A repeat group is passed on once its end is reached. Text files must be encoded in
+   * UTF-8. Lines that can't be parsed are skipped and
+   * reported, loading always continues until the end of the file.
+   *
+   * @param path     the path to the preset file
+   * @param consumer the consumer of the loaded intervals
+   *
+   * @return every error found in the file, in the order of their lines
+   *
+   * @throws IllegalArgumentException if the file can't be read
+   */
+  public static List<PresetError> load(Path path, Consumer<Interval> consumer) {
+    try {
+      if (detect(path) == Format.Binary) {
+        return BinaryPresetFile.load(path, consumer);
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        return loadText(channel, BUFFER_SIZE, consumer);
+      }
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+  }
+
+  /**
+   * Loads intervals from the content of a preset file that was already read into memory, like an
+   * entry of an archive. Behaves like {@link #load(Path, Consumer)} otherwise.
+   *
+   * @param content  the content of the preset file, in any format
+   * @param consumer the consumer of the loaded intervals
+   *
+   * @return every error found in the content, in the order of their lines
+   */
+  public static List<PresetError> load(byte[] content, Consumer<Interval> consumer) {
+    ByteBuffer in = ByteBuffer.wrap(content);
+    if (BinaryPresetFile.isBinary(in.duplicate())) {
+      return BinaryPresetFile.load(in, consumer);
+    }
+
+    try {
+      // small buffers for small presets, an import parses thousands of them
+      int bufferSize = Math.min(BUFFER_SIZE, Math.max(content.length, 64));
+      return loadText(Channels.newChannel(new ByteArrayInputStream(content)), bufferSize,
+        consumer);
+    } catch (final IOException e) {
+      // reading from memory doesn't fail
+      throw new IllegalStateException(e);
+    }
+  }
 
-        String duration = line.substring(0, 5);
-        String label = line.substring(6);
-        intervals.add(new Interval(duration, label));
+  /**
+   * Detects the format of the specified file from its first bytes.
+   *
+   * @param path the path to the preset file
+   *
+   * @return the format of the file
+   *
+   * @throws IllegalArgumentException if the file can't be read
+   */
+  public static Format detect(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer start = ByteBuffer.allocate(BinaryPresetFile.MAGIC.length);
+      while (start.hasRemaining() && channel.read(start) >= 0) {
+        // keep reading until the magic bytes are complete or the file ends
       }
+      start.flip();
 
-      return intervals;
+      return BinaryPresetFile.isBinary(start) ? Format.Binary : Format.Text;
     } catch (final IOException e) {
       throw new IllegalArgumentException("Invalid path");
     }
   }
 
   /**
-   * Saves the given intervals to the specified file. Each interval is written in the format - ss:mm
-   * INTERVAL_NAME.
+   * Returns the number of intervals, the total duration and the labels of the specified file. For
+   * binary files only the header and the table of labels are parsed.
+   *
+   * @param path the path to the preset file
+   *
+   * @return the summary of the preset
+   *
+   * @throws IllegalArgumentException if the file can't be read or the format is not correct
+   */
+  public static PresetSummary readSummary(Path path) {
+    try {
+      if (detect(path) == Format.Binary) {
+        return BinaryPresetFile.readSummary(path);
+      }
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+
+    List<Interval> intervals = new ArrayList<>();
+    List<PresetError> errors = load(path, intervals::add);
+
+    if (!errors.isEmpty()) {
+      throw new IllegalArgumentException(describe(errors));
+    }
+    return PresetSummary.of(intervals);
+  }
+
+  /**
+   * Converts a preset file to the given format.
+   *
+   * @param source the path of the preset to convert, in any format
+   * @param target the path of the converted preset
+   * @param format the format of the converted preset
+   *
+   * @throws IllegalArgumentException if a file can't be accessed or the source is not valid
+   */
+  public static void convert(Path source, Path target, Format format) {
+    save(load(source.toString()), target, format);
+  }
+
+  /**
+   * Returns the format a preset is saved in, based on the extension of its path.
+   *
+   * @param path the path of the preset file
+   *
+   * @return the binary format for paths ending with {@link #BINARY_EXTENSION}, text otherwise
+   */
+  public static Format formatOf(String path) {
+    return path.endsWith(BINARY_EXTENSION) ? Format.Binary : Format.Text;
+  }
+
+  private static List<PresetError> loadText(ReadableByteChannel channel, int bufferSize,
+                                            Consumer<Interval> consumer) throws IOException {
+    List<PresetError> errors = new ArrayList<>();
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPORT)
+      .onUnmappableCharacter(CodingErrorAction.REPORT);
+    ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+    CharBuffer chars = CharBuffer.allocate(bufferSize);
+    StringBuilder line = new StringBuilder();
+    Deque<OpenGroup> groups = new ArrayDeque<>();
+    int lineNumber = 1;
+    boolean lineValid = true;
+    boolean eof = false;
+
+    while (!eof) {
+      eof = channel.read(bytes) < 0;
+      bytes.flip();
+
+      CoderResult result;
+      do {
+        result = decoder.decode(bytes, chars, eof);
+
+        chars.flip();
+        while (chars.hasRemaining()) {
+          char c = chars.get();
+          if (c == '\n') {
+            if (lineValid) {
+              parseLine(line, lineNumber, groups, consumer, errors);
+            }
+            line.setLength(0);
+            lineNumber++;
+            lineValid = true;
+          } else if (c != BYTE_ORDER_MARK || lineNumber > 1 || line.length() > 0) {
+            line.append(c);
+          }
+        }
+        chars.clear();
+
+        if (result.isError()) {
+          errors.add(new PresetError(lineNumber, line.length() + 1, "Invalid UTF-8"));
+          lineValid = false;
+          bytes.position(bytes.position() + result.length());
+        }
+      } while (result.isError() || result.isOverflow());
+
+      bytes.compact();
+    }
+
+    decoder.flush(chars);
+    if (line.length() > 0 && lineValid) {
+      parseLine(line, lineNumber, groups, consumer, errors);
+    }
+
+    // groups without an end are dropped, innermost first
+    while (!groups.isEmpty()) {
+      errors.add(new PresetError(groups.pop().lineNumber, 1, "Missing end of the repeat group"));
+    }
+    errors.sort(Comparator.comparingInt(PresetError::getLine));
+
+    return errors;
+  }
+
+  /**
+   * Describes the given errors in a few lines, suitable for showing to the user.
+   *
+   * @param errors the errors to describe
    *
-   * @param intervals an ArrayList of Interval objects
+   * @return the description
+   */
+  public static String describe(List<PresetError> errors) {
+    StringBuilder description = new StringBuilder();
+    int shown = Math.min(errors.size(), MAX_DESCRIBED_ERRORS);
+
+    for (int i = 0; i < shown; i++) {
+      if (i > 0) {
+        description.append('\n');
+      }
+      description.append(errors.get(i));
+    }
+    if (errors.size() > shown) {
+      description.append("\n... and ").append(errors.size() - shown).append(" more");
+    }
+
+    return description.toString();
+  }
+
+  private static void parseLine(StringBuilder line, int lineNumber, Deque<OpenGroup> groups,
+                                Consumer<Interval> consumer, List<PresetError> errors) {
+    int length = line.length();
+    if (length > 0 && line.charAt(length - 1) == '\r') {
+      line.setLength(--length);
+    }
+
+    // intervals inside groups may be indented
+    int start = 0;
+    while (start < length && (line.charAt(start) == ' ' || line.charAt(start) == '\t')) {
+      start++;
+    }
+
+    if (startsWith(line, start, REPEAT)) {
+      parseRepeat(line, start, lineNumber, groups, errors);
+      return;
+    }
+    if (length - start == END.length() && startsWith(line, start, END)) {
+      if (groups.isEmpty()) {
+        errors.add(new PresetError(lineNumber, start + 1, "Unexpected end of a repeat group"));
+        return;
+      }
+
+      // a group with an invalid first line was already reported
+      OpenGroup group = groups.pop();
+      if (group.count < 0) {
+        return;
+      }
+      if (group.children.isEmpty()) {
+        errors.add(new PresetError(group.lineNumber, 1, "Empty repeat group"));
+      } else {
+        add(new RepeatGroup(group.count, group.label, group.children), groups, consumer);
+      }
+      return;
+    }
+
+    int duration = DurationCodec.parse(line, start);
+    if (duration < 0) {
+      errors.add(new PresetError(lineNumber, durationErrorColumn(line, start), "Expected mm:ss"));
+    } else if (length == start + DurationCodec.LENGTH
+      || line.charAt(start + DurationCodec.LENGTH) != ' ') {
+      errors.add(new PresetError(lineNumber, start + DurationCodec.LENGTH + 1,
+        "Expected a space after the duration"));
+    } else if (duration < Interval.MIN_DURATION || duration > Interval.MAX_DURATION) {
+      errors.add(new PresetError(lineNumber, start + 1, "Duration must be between 00:01-59:59"));
+    } else {
+      add(new Interval(duration, line.substring(start + DurationCodec.LENGTH + 1)), groups,
+        consumer);
+    }
+  }
+
+  private static void parseRepeat(StringBuilder line, int start, int lineNumber,
+                                  Deque<OpenGroup> groups, List<PresetError> errors) {
+    int i = start + REPEAT.length();
+    int count = -1;
+
+    if (i < line.length() && line.charAt(i) == ' ') {
+      int digits = ++i;
+      count = 0;
+      while (i < line.length() && i - digits < 5 && line.charAt(i) >= '0'
+        && line.charAt(i) <= '9') {
+        count = count * 10 + line.charAt(i++) - '0';
+      }
+      if (i == digits || i < line.length() && line.charAt(i) != ' ') {
+        count = -1;
+      }
+    }
+
+    String label = i < line.length() ? line.substring(i + 1) : "";
+    if (count < 1 || count > RepeatGroup.MAX_COUNT) {
+      errors.add(new PresetError(lineNumber, start + REPEAT.length() + 1,
+        "Expected a repeat count between 1-" + RepeatGroup.MAX_COUNT));
+      count = -1;
+    } else if (groups.size() >= RepeatGroup.MAX_DEPTH) {
+      errors.add(new PresetError(lineNumber, start + 1,
+        "Repeat groups must not be nested deeper than " + RepeatGroup.MAX_DEPTH));
+      count = -1;
+    }
+
+    // an invalid group is still opened, so its end doesn't count as unexpected
+    groups.push(new OpenGroup(count, label, lineNumber));
+  }
+
+  private static void add(Interval interval, Deque<OpenGroup> groups,
+                          Consumer<Interval> consumer) {
+    if (groups.isEmpty()) {
+      consumer.accept(interval);
+    } else if (groups.peek().count >= 0) {
+      groups.peek().children.add(interval);
+    }
+  }
+
+  private static boolean startsWith(StringBuilder line, int start, String prefix) {
+    if (line.length() - start < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (line.charAt(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int durationErrorColumn(StringBuilder line, int start) {
+    for (int i = 0; i < DurationCodec.LENGTH; i++) {
+      if (start + i >= line.length()) {
+        return start + i + 1;
+      }
+
+      char c = line.charAt(start + i);
+      boolean expected = i == 2 ? c == ':' : c >= '0' && c <= '9';
+      if (!expected) {
+        return start + i + 1;
+      }
+    }
+    return start + 1;
+  }
+
+  private static void saveText(List<Interval> intervals, Writer out, String indent)
+    throws IOException {
+    for (Interval i : intervals) {
+      if (i instanceof RepeatGroup) {
+        RepeatGroup group = (RepeatGroup) i;
+        out.write(indent + REPEAT + " " + group.getCount());
+        if (!group.getLabel().isEmpty()) {
+          out.write(" " + group.getLabel());
+        }
+        out.write("\n");
+        saveText(group.getChildren(), out, indent + INDENT);
+        out.write(indent + END + "\n");
+      } else {
+        out.write(indent + i.toString() + "\n");
+      }
+    }
+  }
+
+  /**
+   * Creates an empty temporary file next to the given target, to be moved over it once written.
+   * Unlike {@link Files#createTempFile}, which always restricts the file to its owner, the file
+   * gets the permissions the target already has, or the default ones for new files if there is no
+   * target yet. Replacing a preset in a shared library thus doesn't lock the others out.
+   *
+   * @param target the file that will be replaced
+   *
+   * @return the path of the temporary file
+   *
+   * @throws IOException if the file can't be created
+   */
+  static Path createTempFile(Path target) throws IOException {
+    Path dir = target.toAbsolutePath().getParent();
+    Path temp;
+    while (true) {
+      temp = dir.resolve("." + target.getFileName()
+        + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+      try {
+        // without explicit attributes the file is created with the defaults of the process
+        Files.createFile(temp);
+        break;
+      } catch (FileAlreadyExistsException e) {
+        // taken by another save, try the next name
+      }
+    }
+
+    if (Files.exists(target)
+      && Files.getFileAttributeView(target, PosixFileAttributeView.class) != null) {
+      try {
+        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+      } catch (final IOException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+    }
+    return temp;
+  }
+
+  /**
+   * Saves the given intervals to the specified file. Files ending with {@link #BINARY_EXTENSION}
+   * are written in the binary format, any other file as text, where each interval is written in
+   * the format - mm:ss INTERVAL_NAME.
+   *
+   * @param intervals a list of Interval objects
    * @param path      the path of the file
    *
    * @throws IllegalArgumentException if the specified file is invalid
    */
-  public static void save(ArrayList<Interval> intervals, String path) {
-    try (var out = new BufferedWriter(new FileWriter(path))) {
-      if (intervals != null) {
-        for (Interval i : intervals) {
-          out.write(i.toString() + "\n");
+  public static void save(List<Interval> intervals, String path) {
+    save(intervals, Paths.get(path), formatOf(path));
+  }
+
+  /**
+   * Saves the given intervals to the specified file in the given format. The intervals are written
+   * to a temporary file first, which then replaces the target in a single step, so the target
+   * always holds either the old or the new preset.
+   *
+   * @param intervals a list of Interval objects
+   * @param path      the path of the file
+   * @param format    the format of the file
+   *
+   * @throws IllegalArgumentException if the specified file is invalid
+   */
+  public static void save(List<Interval> intervals, Path path, Format format) {
+    Path temp = null;
+    try {
+      temp = createTempFile(path);
+
+      try (var stream = new FileOutputStream(temp.toFile())) {
+        if (format == Format.Binary) {
+          BinaryPresetFile.save(intervals, stream);
+        } else {
+          var out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+          if (intervals != null) {
+            saveText(intervals, out, "");
+          }
+          out.flush();
         }
+        stream.getFD().sync();
+      }
+
+      try {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
       }
     } catch (final IOException e) {
       throw new IllegalArgumentException("Invalid path");
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (final IOException e) {
+          // nothing left to do, the file is only a leftover
+        }
+      }
     }
   }
 }
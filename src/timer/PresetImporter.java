@@ -0,0 +1,288 @@
+package timer;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports every preset file of a directory or zip archive into the preset directory at once.
+ * Reading, validating and hashing the files is split across a fork-join pool, so an import of
+ * thousands of presets scales with the number of cores. Files that are invalid don't stop the
+ * import, they are only reported. Files whose content is the same as a preset that is already
+ * stored, or an earlier file of the same import, are skipped as duplicates.
+ * <p>
+ * The accepted files are then written into the preset directory in a single pass, keeping their
+ * format. A file whose name is already taken is renamed to <i>name (2)</i>, <i>name (3)</i> and so
+ * on.
+ */
+public class PresetImporter {
+  // files per task, small presets are parsed in a few microseconds
+  private static final int THRESHOLD = 8;
+  private static final String ZIP_EXTENSION = ".zip";
+
+  // a preset file that was read and validated, without touching the preset directory
+  private static final class Parsed {
+    private final Path source;
+    private byte[] content;
+    private String hash;
+    private List<Interval> intervals;
+    private List<PresetError> errors;
+
+    private Parsed(Path source) {
+      this.source = source;
+    }
+  }
+
+  private static final class ParseTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Parsed[] files;
+    private final boolean validate;
+    private final int from;
+    private final int to;
+
+    private ParseTask(Parsed[] files, boolean validate, int from, int to) {
+      this.files = files;
+      this.validate = validate;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (to - from <= THRESHOLD) {
+        for (int i = from; i < to; i++) {
+          parse(files[i], validate);
+        }
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(new ParseTask(files, validate, from, middle),
+        new ParseTask(files, validate, middle, to));
+    }
+  }
+
+  private final Path dir;
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates an importer using the common fork-join pool.
+   *
+   * @param dir the preset directory
+   */
+  public PresetImporter(Path dir) {
+    this(dir, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates an importer.
+   *
+   * @param dir  the preset directory
+   * @param pool the pool to read and validate the files on
+   */
+  public PresetImporter(Path dir, ForkJoinPool pool) {
+    this.dir = dir;
+    this.pool = pool;
+  }
+
+  /**
+   * Imports all preset files found in the given directory or zip archive, including their
+   * subdirectories. Hidden files are skipped.
+   *
+   * @param source the directory or the zip archive
+   *
+   * @return the outcome for every preset file found
+   *
+   * @throws IllegalArgumentException if the source or the preset directory can't be read
+   */
+  public ImportReport importFrom(Path source) {
+    if (Files.isDirectory(source)) {
+      return importTree(source);
+    }
+    if (!source.getFileName().toString().toLowerCase().endsWith(ZIP_EXTENSION)) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+
+    try (FileSystem zip = FileSystems.newFileSystem(source, (ClassLoader) null)) {
+      return importTree(zip.getPath("/"));
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+  }
+
+  private ImportReport importTree(Path root) {
+    // the stored presets are only hashed, to find duplicates among the imported ones
+    Parsed[] stored = list(dir, false);
+    pool.invoke(new ParseTask(stored, false, 0, stored.length));
+    Parsed[] found = list(root, true);
+    pool.invoke(new ParseTask(found, true, 0, found.length));
+
+    // whatever is written below can't be a duplicate anymore
+    Map<String, String> known = new HashMap<>();
+    for (Parsed file : stored) {
+      if (file.hash != null) {
+        known.putIfAbsent(file.hash, file.source.getFileName().toString());
+      }
+    }
+    Set<String> names = new HashSet<>();
+    for (Parsed file : stored) {
+      names.add(presetName(file.source.getFileName().toString()));
+    }
+
+    List<ImportReport.Entry> entries = new ArrayList<>(found.length);
+    for (Parsed file : found) {
+      String relative = root.relativize(file.source).toString();
+      if (file.content == null) {
+        entries.add(new ImportReport.Entry(relative, ImportReport.Status.Failed, null,
+          Collections.emptyList(), null));
+      } else if (!file.errors.isEmpty() || file.intervals.isEmpty()) {
+        entries.add(new ImportReport.Entry(relative, ImportReport.Status.Invalid, null,
+          file.errors, null));
+      } else if (known.containsKey(file.hash)) {
+        entries.add(new ImportReport.Entry(relative, ImportReport.Status.Duplicate,
+          known.get(file.hash), Collections.emptyList(), null));
+      } else {
+        String filename = uniqueFilename(file.source.getFileName().toString(), names);
+        if (write(filename, file.content)) {
+          names.add(presetName(filename));
+          known.put(file.hash, filename);
+          entries.add(new ImportReport.Entry(relative, ImportReport.Status.Imported, filename,
+            Collections.emptyList(), file.intervals));
+        } else {
+          entries.add(new ImportReport.Entry(relative, ImportReport.Status.Failed, null,
+            Collections.emptyList(), null));
+        }
+      }
+      // the content isn't needed anymore, keep the memory of large imports in check
+      file.content = null;
+    }
+
+    return new ImportReport(entries);
+  }
+
+  /**
+   * Lists the preset files below the given directory, sorted by their paths so the report and the
+   * choice between duplicates don't depend on the order of the file system.
+   */
+  private static Parsed[] list(Path root, boolean recursive) {
+    try (Stream<Path> paths = recursive ? Files.walk(root) : Files.list(root)) {
+      List<Path> files = paths
+        .filter(path -> path.getFileName() != null
+          && !path.getFileName().toString().startsWith(".")
+          && PresetCatalog.isPreset(path) && Files.isRegularFile(path))
+        .sorted()
+        .collect(Collectors.toList());
+
+      Parsed[] parsed = new Parsed[files.size()];
+      for (int i = 0; i < parsed.length; i++) {
+        parsed[i] = new Parsed(files.get(i));
+      }
+      return parsed;
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+  }
+
+  private static void parse(Parsed file, boolean validate) {
+    try {
+      file.content = Files.readAllBytes(file.source);
+    } catch (IOException | RuntimeException e) {
+      return;
+    }
+    file.hash = hash(file.content);
+    if (validate) {
+      List<Interval> intervals = new ArrayList<>();
+      try {
+        file.errors = PresetFile.load(file.content, intervals::add);
+      } catch (final RuntimeException e) {
+        // a file the parser chokes on is invalid, it must not abort the whole import
+        file.errors = Collections.singletonList(new PresetError(1, 1, "Invalid format"));
+      }
+      file.intervals = intervals;
+    } else {
+      file.content = null;
+    }
+  }
+
+  private static String hash(byte[] content) {
+    try {
+      // digests aren't thread safe, and creating one is cheap compared to reading the file
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (final NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the given file name, or the first free one of <i>name (2)</i>, <i>name (3)</i>, ...
+   * if a preset with that name exists already. Names are compared without the extension, since
+   * the drop-down list doesn't show it.
+   */
+  private static String uniqueFilename(String filename, Set<String> names) {
+    String name = presetName(filename);
+    String extension = filename.substring(name.length());
+
+    String unique = name;
+    for (int i = 2; names.contains(unique); i++) {
+      unique = name + " (" + i + ")";
+    }
+    return unique + extension;
+  }
+
+  private static String presetName(String filename) {
+    return filename.substring(0, filename.lastIndexOf('.'));
+  }
+
+  /**
+   * Writes a preset into the directory, replacing the target in a single step like
+   * {@link PresetFile#save(List, Path, PresetFile.Format)}, with the default permissions for new
+   * files. The files aren't synced one by one, the originals stay where they were imported from.
+   */
+  private boolean write(String filename, byte[] content) {
+    Path target = dir.resolve(filename);
+    Path temp = null;
+    try {
+      temp = PresetFile.createTempFile(target);
+      Files.write(temp, content);
+      try {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target);
+      }
+      return true;
+    } catch (final IOException e) {
+      return false;
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (final IOException e) {
+          // nothing left to do, the file is only a leftover
+        }
+      }
+    }
+  }
+}
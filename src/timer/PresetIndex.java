@@ -0,0 +1,219 @@
+package timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An in-memory search index over the presets of a {@link PresetCatalog}, which keeps it up to date
+ * as entries are added, changed or removed. Every word of every interval label points to the
+ * presets using it, and the presets are also sorted by their total duration, so a query only
+ * touches the presets it could match.
+ * <p>
+ * Words match case-insensitively by prefix, so "plan" finds presets with a "Plank" interval. A
+ * query like "plank 20-30" finds the presets containing a word starting with "plank" that take
+ * between 20 and 30 minutes; "&lt;30" and "&gt;20" are accepted as well.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class PresetIndex {
+  private static final long MINUTE = 60_000;
+
+  // word of a label -> file names of the presets using it
+  private final NavigableMap<String, Set<String>> words;
+  // total duration -> file names of the presets taking that long
+  private final NavigableMap<Long, Set<String>> durations;
+  private final Map<String, PresetSummary> indexed;
+
+  public PresetIndex() {
+    this.words = new TreeMap<>();
+    this.durations = new TreeMap<>();
+    this.indexed = new HashMap<>();
+  }
+
+  /**
+   * Adds a preset to the index, replacing an earlier version of it.
+   *
+   * @param filename the name of the preset file
+   * @param summary  the summary of the preset, null if it couldn't be read
+   */
+  void put(String filename, PresetSummary summary) {
+    remove(filename);
+    if (summary == null) {
+      return;
+    }
+
+    indexed.put(filename, summary);
+    for (String word : words(summary)) {
+      words.computeIfAbsent(word, w -> new HashSet<>()).add(filename);
+    }
+    durations.computeIfAbsent(summary.getTotalDuration(), d -> new HashSet<>()).add(filename);
+  }
+
+  /**
+   * Removes a preset from the index.
+   *
+   * @param filename the name of the preset file
+   */
+  void remove(String filename) {
+    PresetSummary summary = indexed.remove(filename);
+    if (summary == null) {
+      return;
+    }
+
+    for (String word : words(summary)) {
+      removePosting(words, word, filename);
+    }
+    removePosting(durations, summary.getTotalDuration(), filename);
+  }
+
+  void clear() {
+    words.clear();
+    durations.clear();
+    indexed.clear();
+  }
+
+  /**
+   * Finds the presets matching a query of words and duration ranges in minutes, see
+   * {@link PresetIndex}. Terms of a query must all match.
+   *
+   * @param query the query
+   *
+   * @return the file names of the matching presets, or all presets for an empty query
+   */
+  public Set<String> search(String query) {
+    List<String> terms = new ArrayList<>();
+    long min = 0;
+    long max = Long.MAX_VALUE;
+
+    for (String term : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+      if (term.isEmpty()) {
+        continue;
+      }
+
+      long[] range = parseRange(term);
+      if (range != null) {
+        min = Math.max(min, range[0]);
+        max = Math.min(max, range[1]);
+      } else {
+        terms.addAll(split(term));
+      }
+    }
+    return search(terms, min, max);
+  }
+
+  /**
+   * Finds the presets that contain a word starting with each of the given prefixes and whose total
+   * duration is within the given range.
+   *
+   * @param prefixes the lower case prefixes of label words
+   * @param min      the shortest total duration in ms
+   * @param max      the longest total duration in ms
+   *
+   * @return the file names of the matching presets
+   */
+  public Set<String> search(List<String> prefixes, long min, long max) {
+    if (min > max) {
+      return Collections.emptySet();
+    }
+
+    // candidates come from the most selective condition, the others are only checked
+    Set<String> result = null;
+    if (min > 0 || max < Long.MAX_VALUE) {
+      result = new HashSet<>();
+      for (Set<String> filenames : durations.subMap(min, true, max, true).values()) {
+        result.addAll(filenames);
+      }
+    }
+
+    for (String prefix : prefixes) {
+      Set<String> matches = new HashSet<>();
+      for (Set<String> filenames : prefixRange(prefix).values()) {
+        if (result == null) {
+          matches.addAll(filenames);
+        } else {
+          for (String filename : filenames) {
+            if (result.contains(filename)) {
+              matches.add(filename);
+            }
+          }
+        }
+      }
+      result = matches;
+      if (result.isEmpty()) {
+        return result;
+      }
+    }
+
+    return result != null ? result : new HashSet<>(indexed.keySet());
+  }
+
+  private NavigableMap<String, Set<String>> prefixRange(String prefix) {
+    // the last possible character closes the range of every word starting with the prefix
+    return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+  }
+
+  /**
+   * Parses a duration range in minutes: "20-30", "&lt;30" or "&gt;20".
+   *
+   * @return the range in ms, or null if the term isn't a range
+   */
+  private static long[] parseRange(String term) {
+    try {
+      if (term.startsWith("<")) {
+        return new long[] {0, Long.parseLong(term.substring(1)) * MINUTE};
+      }
+      if (term.startsWith(">")) {
+        return new long[] {Long.parseLong(term.substring(1)) * MINUTE, Long.MAX_VALUE};
+      }
+      int dash = term.indexOf('-');
+      if (dash > 0) {
+        return new long[] {Long.parseLong(term.substring(0, dash)) * MINUTE,
+          Long.parseLong(term.substring(dash + 1)) * MINUTE};
+      }
+    } catch (final NumberFormatException e) {
+      // not a range, searched as a word
+    }
+    return null;
+  }
+
+  private static Set<String> words(PresetSummary summary) {
+    Set<String> words = new HashSet<>();
+    for (String label : summary.getLabels()) {
+      words.addAll(split(label.toLowerCase(Locale.ROOT)));
+    }
+    return words;
+  }
+
+  /**
+   * Splits a lower case label into its words, which consist of letters and digits.
+   */
+  private static List<String> split(String label) {
+    List<String> words = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= label.length(); i++) {
+      boolean wordChar = i < label.length() && Character.isLetterOrDigit(label.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        words.add(label.substring(start, i));
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  private static <K> void removePosting(Map<K, Set<String>> postings, K key, String filename) {
+    Set<String> filenames = postings.get(key);
+    if (filenames != null && filenames.remove(filename) && filenames.isEmpty()) {
+      postings.remove(key);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package timer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Loads and saves presets on a background thread. Saves are write-behind: the latest snapshot of
+ * every preset is kept until the background thread gets to it, so repeated saves of the same
+ * preset are written only once. Loads are queued behind pending saves, and a load of a preset that
+ * is still waiting to be written returns the pending snapshot.
+ */
+public class PresetStore {
+  private final ExecutorService executor;
+  private final Map<Path, List<Interval>> pending;
+  private volatile BiConsumer<Path, List<Interval>> onSaved;
+  private volatile Consumer<RuntimeException> onError;
+
+  public PresetStore() {
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "preset-store");
+      thread.setDaemon(true);
+      return thread;
+    });
+    pending = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Sets a callback that is called on the background thread after a preset was written.
+   *
+   * @param onSaved the callback, receiving the path and the written intervals
+   */
+  public void setOnSaved(BiConsumer<Path, List<Interval>> onSaved) {
+    this.onSaved = onSaved;
+  }
+
+  /**
+   * Sets a callback that is called on the background thread if a preset could not be written.
+   *
+   * @param onError the callback
+   */
+  public void setOnError(Consumer<RuntimeException> onError) {
+    this.onError = onError;
+  }
+
+  /**
+   * Queues the given intervals to be written to the specified file. The list must not be changed
+   * afterwards. If an earlier snapshot of the same file hasn't been written yet, it is replaced.
+   *
+   * @param path      the path of the preset file
+   * @param intervals a snapshot of the intervals
+   */
+  public void save(Path path, List<Interval> intervals) {
+    if (pending.put(path, intervals) == null) {
+      executor.execute(() -> write(path));
+    }
+  }
+
+  /**
+   * Loads the specified preset on the background thread. The intervals are passed on in chunks as
+   * they are parsed.
+   *
+   * @param path      the path of the preset file
+   * @param chunkSize the maximal number of intervals per chunk
+   * @param chunks    called on the background thread with every chunk of intervals
+   *
+   * @return a future completed with the errors found in the file, or completed exceptionally if
+   * the file can't be read
+   */
+  public CompletableFuture<List<PresetError>> load(Path path, int chunkSize,
+                                                   Consumer<List<Interval>> chunks) {
+    CompletableFuture<List<PresetError>> result = new CompletableFuture<>();
+
+    executor.execute(() -> {
+      List<Interval> snapshot = pending.get(path);
+      if (snapshot != null) {
+        chunks.accept(new ArrayList<>(snapshot));
+        result.complete(Collections.emptyList());
+        return;
+      }
+
+      try {
+        List<Interval> chunk = new ArrayList<>();
+        List<PresetError> errors = PresetFile.load(path, interval -> {
+          chunk.add(interval);
+          if (chunk.size() >= chunkSize) {
+            chunks.accept(new ArrayList<>(chunk));
+            chunk.clear();
+          }
+        });
+        if (!chunk.isEmpty()) {
+          chunks.accept(chunk);
+        }
+        result.complete(errors);
+      } catch (final RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Blocks until every save queued so far has been written.
+   */
+  public void flush() {
+    // a save coming in while its preset is being written is queued behind the marker
+    while (!pending.isEmpty()) {
+      if (!awaitQueued()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Drops the pending save of the specified file and blocks until a write of it that has already
+   * started is done, so the file can be deleted without being written again afterwards.
+   *
+   * @param path the path of the preset file
+   */
+  public void discard(Path path) {
+    pending.remove(path);
+    awaitQueued();
+  }
+
+  /**
+   * Blocks until every task queued so far has run.
+   *
+   * @return false if the thread was interrupted while waiting
+   */
+  private boolean awaitQueued() {
+    Future<?> done = executor.submit(() -> {
+    });
+
+    try {
+      done.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (final Exception e) {
+      // the marker task itself can't fail
+    }
+    return true;
+  }
+
+  private void write(Path path) {
+    List<Interval> intervals = pending.get(path);
+    if (intervals == null) {
+      return;
+    }
+
+    try {
+      PresetFile.save(intervals, path, PresetFile.formatOf(path.toString()));
+      if (onSaved != null) {
+        onSaved.accept(path, intervals);
+      }
+    } catch (final RuntimeException e) {
+      if (onError != null) {
+        onError.accept(e);
+      }
+    } finally {
+      // a newer snapshot put in the meantime didn't queue a task of its own
+      if (!pending.remove(path, intervals)) {
+        executor.execute(() -> write(path));
+      }
+    }
+  }
+}
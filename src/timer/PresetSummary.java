@@ -0,0 +1,82 @@
+package timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The size, total length and labels of a preset, available without loading its intervals.
+ */
+public class PresetSummary {
+  private final int count;
+  private final long totalDuration;
+  private final List<String> labels;
+
+  /**
+   * Creates a summary without labels.
+   *
+   * @param count         the number of intervals
+   * @param totalDuration the sum of all durations in ms
+   */
+  public PresetSummary(int count, long totalDuration) {
+    this(count, totalDuration, Collections.emptyList());
+  }
+
+  /**
+   * Creates a summary.
+   *
+   * @param count         the number of intervals
+   * @param totalDuration the sum of all durations in ms
+   * @param labels        the distinct labels of the intervals and repeat groups
+   */
+  public PresetSummary(int count, long totalDuration, List<String> labels) {
+    this.count = count;
+    this.totalDuration = totalDuration;
+    this.labels = Collections.unmodifiableList(labels);
+  }
+
+  /**
+   * Summarizes the given intervals.
+   *
+   * @param intervals the intervals of a preset
+   *
+   * @return the summary
+   */
+  public static PresetSummary of(List<Interval> intervals) {
+    long total = 0;
+    Set<String> labels = new LinkedHashSet<>();
+    for (Interval i : intervals) {
+      total += i.getTotalDuration();
+      collectLabels(i, labels);
+    }
+    return new PresetSummary(intervals.size(), total, new ArrayList<>(labels));
+  }
+
+  private static void collectLabels(Interval interval, Set<String> labels) {
+    labels.add(interval.getLabel());
+    if (interval instanceof RepeatGroup) {
+      for (Interval child : ((RepeatGroup) interval).getChildren()) {
+        collectLabels(child, labels);
+      }
+    }
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public long getTotalDuration() {
+    return totalDuration;
+  }
+
+  /**
+   * Returns the distinct labels of the preset, in the order they first appear.
+   *
+   * @return the labels, including the ones of repeat groups
+   */
+  public List<String> getLabels() {
+    return labels;
+  }
+}
@@ -0,0 +1,129 @@
+package timer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a preset directory for files being added, changed or removed by other programs. Events
+ * are collected until the directory has been quiet for a moment, so a burst of changes - e.g. a
+ * sync tool copying many files - is reported as a single batch.
+ */
+public class PresetWatcher implements Closeable {
+  private static final long QUIET_PERIOD = 250;
+  private static final long MAX_DELAY = 2000;
+
+  public interface Listener {
+    /**
+     * Called on the watcher thread with a batch of changes. A renamed file shows up as deleted
+     * under its old name and changed under its new one.
+     *
+     * @param changed  names of preset files that were created or modified and still exist
+     * @param deleted  names of preset files that don't exist anymore
+     * @param overflow true if events were lost and the whole directory should be checked again
+     */
+    void presetsChanged(Set<String> changed, Set<String> deleted, boolean overflow);
+  }
+
+  private final Path dir;
+  private final Listener listener;
+  private final WatchService watchService;
+  private final Thread thread;
+
+  /**
+   * Starts watching the given directory.
+   *
+   * @param dir      the preset directory
+   * @param listener the listener receiving the batches of changes
+   *
+   * @throws IllegalArgumentException if the directory can't be watched
+   */
+  public PresetWatcher(Path dir, Listener listener) {
+    this.dir = dir;
+    this.listener = listener;
+
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+      dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+
+    thread = new Thread(this::run, "preset-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops watching the directory.
+   */
+  public void close() {
+    try {
+      watchService.close();
+    } catch (final IOException e) {
+      // the watcher thread stops either way
+    }
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        Set<String> touched = new HashSet<>();
+        boolean overflow = collect(watchService.take(), touched);
+
+        // wait until the directory is quiet, but don't hold back changes forever
+        long deadline = System.currentTimeMillis() + MAX_DELAY;
+        WatchKey key;
+        while (System.currentTimeMillis() < deadline
+          && (key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null) {
+          overflow |= collect(key, touched);
+        }
+
+        Set<String> changed = new HashSet<>();
+        Set<String> deleted = new HashSet<>();
+        for (String filename : touched) {
+          if (Files.exists(dir.resolve(filename))) {
+            changed.add(filename);
+          } else {
+            deleted.add(filename);
+          }
+        }
+
+        if (overflow || !changed.isEmpty() || !deleted.isEmpty()) {
+          listener.presetsChanged(changed, deleted, overflow);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed
+    }
+  }
+
+  private boolean collect(WatchKey key, Set<String> touched) {
+    boolean overflow = false;
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        overflow = true;
+      } else {
+        Path file = (Path) event.context();
+        if (PresetCatalog.isPreset(file)) {
+          touched.add(file.getFileName().toString());
+        }
+      }
+    }
+    key.reset();
+
+    return overflow;
+  }
+}
@@ -0,0 +1,150 @@
+package timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A block of intervals that runs a given number of times. Groups can be nested and are never
+ * expanded: the total duration and the start of every child within one pass are computed once, so
+ * the interval running at any offset can be found without walking the repetitions.
+ * <p>
+ * A group has no duration of its own, {@link #getDuration()} returns 0. Use
+ * {@link #getTotalDuration()} instead.
+ */
+public class RepeatGroup extends Interval {
+  public static final int MAX_COUNT = 9999;
+  public static final int MAX_DEPTH = 8;
+
+  private final int count;
+  private final List<Interval> children;
+
+  // ends[i] is the end of the i-th child in ms, relative to the start of a pass
+  private final long[] ends;
+  private final int depth;
+
+  /**
+   * Creates a group running the given intervals the specified number of times.
+   *
+   * @param count    how many times the intervals run, between 1 and {@value #MAX_COUNT}
+   * @param label    label of the group, may be empty
+   * @param children the intervals of one pass, which may be groups themselves
+   *
+   * @throws IllegalArgumentException if the count is out of range, there are no children or the
+   *                                  groups are nested deeper than {@value #MAX_DEPTH} levels
+   */
+  public RepeatGroup(int count, String label, List<? extends Interval> children) {
+    super(label);
+    if (count < 1 || count > MAX_COUNT) {
+      throw new IllegalArgumentException("Count must be between 1-" + MAX_COUNT);
+    }
+    if (children.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one interval");
+    }
+
+    this.count = count;
+    this.children = Collections.unmodifiableList(new ArrayList<>(children));
+    this.ends = new long[children.size()];
+
+    long total = 0;
+    int maxDepth = 0;
+    for (int i = 0; i < ends.length; i++) {
+      Interval child = this.children.get(i);
+      total += child.getTotalDuration();
+      ends[i] = total;
+      if (child instanceof RepeatGroup) {
+        maxDepth = Math.max(maxDepth, ((RepeatGroup) child).depth);
+      }
+    }
+
+    this.depth = maxDepth + 1;
+    if (depth > MAX_DEPTH) {
+      throw new IllegalArgumentException("Groups must not be nested deeper than " + MAX_DEPTH);
+    }
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public List<Interval> getChildren() {
+    return children;
+  }
+
+  /**
+   * Returns the number of nested levels of this group, 1 if none of its children is a group.
+   *
+   * @return the depth of the group
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns the duration of a single pass through the children.
+   *
+   * @return the duration of one pass in ms
+   */
+  public long getPassDuration() {
+    return ends[ends.length - 1];
+  }
+
+  public long getTotalDuration() {
+    return count * getPassDuration();
+  }
+
+  /**
+   * Returns the index of the child running at the given offset within a pass.
+   *
+   * @param offset the offset in ms from the start of the pass, less than the pass duration
+   *
+   * @return the index of the child
+   */
+  public int childAt(long offset) {
+    // the first child ending after the offset
+    int low = 0;
+    int high = ends.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ends[mid] > offset) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the start of the given child within a pass.
+   *
+   * @param index the index of the child
+   *
+   * @return the offset in ms from the start of the pass
+   */
+  public long childStart(int index) {
+    return index == 0 ? 0 : ends[index - 1];
+  }
+
+  public Interval copy() {
+    return new RepeatGroup(count, getLabel(), children);
+  }
+
+  public Interval withLabel(String label) {
+    return new RepeatGroup(count, label, children);
+  }
+
+  public boolean equals(Object o) {
+    return this == o;
+  }
+
+  public int hashCode() {
+    return System.identityHashCode(this);
+  }
+
+  public String toString() {
+    String label = getLabel().isEmpty() ? "" : " " + getLabel();
+    return count + "x" + label + " (" + children.size() + " intervals, "
+      + DurationCodec.formatLong(getTotalDuration()) + ")";
+  }
+}
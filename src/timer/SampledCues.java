@@ -0,0 +1,83 @@
+package timer;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Plays the cues of the timer with {@code javax.sound.sampled}, so they work without JavaFX, see
+ * {@link CuePlayer}. Where a sound can't be played, e.g. on a machine without an audio device, the
+ * terminal bell is rung instead.
+ */
+public class SampledCues extends CuePlayer<SampledCues.Sound> {
+  static final class Sound {
+    private final Clip clip;
+    private final int cycleCount;
+
+    private Sound(Clip clip, int cycleCount) {
+      this.clip = clip;
+      this.cycleCount = cycleCount;
+    }
+  }
+
+  // the time the last sound that was started stops playing
+  private volatile long silentAt;
+
+  /**
+   * Creates the cue player and decodes the default cues.
+   */
+  public SampledCues() {
+    super(0);
+    silentAt = System.nanoTime();
+    preload();
+  }
+
+  protected Sound decode(String filename, int cycleCount) {
+    try (AudioInputStream stream = AudioSystem.getAudioInputStream(new File(filename))) {
+      Clip clip = AudioSystem.getClip();
+      clip.open(stream);
+      return new Sound(clip, cycleCount);
+    } catch (IOException | UnsupportedAudioFileException | LineUnavailableException
+      | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  protected void release(Sound sound) {
+    // an open clip keeps its audio line
+    sound.clip.close();
+  }
+
+  protected void playSound(Sound sound) {
+    if (sound == null) {
+      System.out.print('\u0007');
+      System.out.flush();
+      return;
+    }
+
+    sound.clip.stop();
+    sound.clip.setFramePosition(0);
+    sound.clip.loop(sound.cycleCount - 1);
+    long end = System.nanoTime() + sound.clip.getMicrosecondLength() * 1000 * sound.cycleCount;
+    if (end - silentAt > 0) {
+      silentAt = end;
+    }
+  }
+
+  /**
+   * Waits until every sound that was started has finished playing. The sounds play on a daemon
+   * thread, so an application has to wait for them before it exits.
+   *
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void awaitSilence() throws InterruptedException {
+    long wait = silentAt - System.nanoTime();
+    if (wait > 0) {
+      Thread.sleep(wait / 1_000_000 + 1);
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package timer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A single run of intervals that is independent of any user interface. The timing itself is done
+ * by a {@link TimingEngine}, the session only asks its {@link SessionScheduler} to be woken up at
+ * the next deadline and notifies its listeners about transitions. Many sessions can share one
+ * scheduler without needing a thread each.
+ * <p>
+ * All methods are thread-safe.
+ */
+public class Session {
+  private final SessionScheduler scheduler;
+  private final TimingEngine engine;
+  private final List<SessionListener> listeners;
+
+  private boolean repeat;
+  private int current;
+  private long stepStart;
+  // the step a transition is reported for while the steps of a stall are caught up on
+  private Interval transitionStep;
+
+  // incremented on every change of the schedule, so stale wakeups can be ignored
+  private long generation;
+
+  /**
+   * Creates a session driven by the given scheduler.
+   *
+   * @param scheduler the scheduler that wakes this session up at its deadlines
+   */
+  public Session(SessionScheduler scheduler) {
+    this.scheduler = scheduler;
+    this.engine = new TimingEngine();
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.repeat = false;
+    this.current = 0;
+    this.generation = 0;
+  }
+
+  public void addListener(SessionListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(SessionListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Starts a new run of the given intervals, stopping the current one if there is any.
+   *
+   * @param intervals the intervals to run
+   *
+   * @throws IllegalArgumentException if there are no intervals
+   */
+  public synchronized void start(List<Interval> intervals) {
+    start(new Timeline(intervals));
+  }
+
+  /**
+   * Starts a new run of the given compiled intervals, stopping the current one if there is any.
+   *
+   * @param timeline the intervals to run
+   */
+  public synchronized void start(Timeline timeline) {
+    start(timeline, 0);
+  }
+
+  /**
+   * Starts a new run of the given compiled intervals at a point in time, e.g. to continue an
+   * interrupted run, stopping the current one if there is any. The listeners are only told that
+   * the run started, not that it jumped.
+   *
+   * @param timeline the intervals to run
+   * @param elapsed  the time in ms relative to the start of the run
+   */
+  public synchronized void start(Timeline timeline, long elapsed) {
+    engine.start(timeline, System.nanoTime());
+    if (elapsed > 0) {
+      engine.seek(elapsed);
+    }
+    current = Math.min(engine.getCurrent(), engine.size() - 1);
+    stepStart = engine.getStepStart();
+    generation++;
+
+    for (SessionListener listener : listeners) {
+      listener.started(this);
+    }
+    scheduleNext();
+  }
+
+  public synchronized void pause() {
+    if (engine.isRunning() && !engine.isPaused()) {
+      engine.pause();
+      generation++;
+
+      for (SessionListener listener : listeners) {
+        listener.paused(this);
+      }
+    }
+  }
+
+  public synchronized void resume() {
+    if (engine.isPaused()) {
+      engine.resume();
+      stepStart = engine.getStepStart();
+      generation++;
+
+      for (SessionListener listener : listeners) {
+        listener.resumed(this);
+      }
+      scheduleNext();
+    }
+  }
+
+  /**
+   * Moves the run to the given point in time, forwards or backwards. The listeners are told with
+   * {@link SessionListener#jumped(Session, int)} instead of a transition for every interval in
+   * between.
+   *
+   * @param time the time in ms relative to the start of the run
+   *
+   * @throws IllegalStateException if the session is not running
+   */
+  public synchronized void seek(long time) {
+    engine.seek(time);
+    jumped();
+  }
+
+  /**
+   * Moves the run to the start of the next step.
+   *
+   * @throws IllegalStateException if the session is not running
+   */
+  public synchronized void skipNext() {
+    if (!engine.isRunning()) {
+      throw new IllegalStateException("The session is not running");
+    }
+    engine.skipNext();
+    jumped();
+  }
+
+  /**
+   * Moves the run back to the start of the current step, or of the previous one right after a
+   * transition.
+   *
+   * @throws IllegalStateException if the session is not running
+   */
+  public synchronized void skipPrevious() {
+    if (!engine.isRunning()) {
+      throw new IllegalStateException("The session is not running");
+    }
+    engine.skipPrevious();
+    jumped();
+  }
+
+  public synchronized void stop() {
+    boolean running = engine.isRunning();
+    engine.stop();
+    current = 0;
+    generation++;
+
+    if (running) {
+      for (SessionListener listener : listeners) {
+        listener.stopped(this);
+      }
+    }
+  }
+
+  public synchronized boolean isRunning() {
+    return engine.isRunning();
+  }
+
+  public synchronized boolean isPaused() {
+    return engine.isPaused();
+  }
+
+  public synchronized boolean isRepeat() {
+    return repeat;
+  }
+
+  /**
+   * Sets whether the intervals start over after the last one ends.
+   *
+   * @param repeat true if the run should repeat
+   */
+  public synchronized void setRepeat(boolean repeat) {
+    this.repeat = repeat;
+  }
+
+  /**
+   * Returns the index of the current interval.
+   *
+   * @return the index of the current interval, or 0 if the session is not running
+   */
+  public synchronized int getCurrent() {
+    return engine.isRunning() ? Math.min(engine.getCurrent(), engine.size() - 1) : 0;
+  }
+
+  /**
+   * Returns the single interval that is running, which differs from the current interval inside a
+   * repeat group. While a transition is reported, this is the step that started with it, even if
+   * a late wakeup has already passed it.
+   *
+   * @return the current step, or null if the session is not running
+   */
+  public synchronized Interval getStep() {
+    if (!engine.isRunning()) {
+      return null;
+    }
+    return transitionStep != null ? transitionStep : engine.getStep();
+  }
+
+  /**
+   * Returns whether the running step is the last one before the end of the run.
+   *
+   * @return true if the run ends with the current step, false if the session is not running
+   */
+  public synchronized boolean isLastStep() {
+    return engine.isRunning() && engine.isLastStep();
+  }
+
+  /**
+   * Returns the time left in the current step.
+   *
+   * @return remaining time in ms, or 0 if the session is not running
+   */
+  public synchronized int getRemaining() {
+    return engine.isRunning() ? engine.getRemaining() : 0;
+  }
+
+  /**
+   * Returns the time since the start of the run, not counting pauses.
+   *
+   * @return the elapsed time in ms, or 0 if the session is not running
+   */
+  public synchronized long getElapsed() {
+    return engine.getElapsed();
+  }
+
+  /**
+   * Returns the time left until the end of the run.
+   *
+   * @return remaining time in ms, or 0 if the session is not running
+   */
+  public synchronized long getTotalRemaining() {
+    return engine.getTotalRemaining();
+  }
+
+  /**
+   * Returns the duration of the whole run.
+   *
+   * @return the total duration in ms, or 0 if the session is not running
+   */
+  public synchronized long getTotalDuration() {
+    return engine.isRunning() ? engine.getTotalDuration() : 0;
+  }
+
+  /**
+   * Returns the deadline of the current step.
+   *
+   * @return the end of the current step in {@link System#nanoTime()} units
+   *
+   * @throws IllegalStateException if the session is not running
+   */
+  public synchronized long getDeadline() {
+    if (!engine.isRunning()) {
+      throw new IllegalStateException("The session is not running");
+    }
+    return engine.getDeadline();
+  }
+
+  /**
+   * Called by the scheduler once the deadline requested for the given generation has passed.
+   *
+   * @param generation the generation the wakeup was requested for
+   */
+  synchronized void expire(long generation) {
+    if (generation != this.generation || !engine.isRunning() || engine.isPaused()) {
+      return;
+    }
+
+    // every step that started since the last wakeup is a transition, including the steps inside
+    // a repeat group, so no cue or record is lost when the wakeup comes late after a stall
+    int next = Math.min(engine.getCurrent(), engine.size() - 1);
+    long until = engine.isFinished() ? engine.getEndTime() - 1 : engine.getStepStart();
+    try {
+      engine.forEachStep(stepStart, until, (index, step, time) -> {
+        current = index;
+        transitionStep = step;
+        for (SessionListener listener : listeners) {
+          listener.transition(this, index, time);
+        }
+      });
+    } finally {
+      transitionStep = null;
+    }
+    current = next;
+    stepStart = engine.getStepStart();
+
+    if (engine.isFinished()) {
+      long endTime = engine.getEndTime();
+      for (SessionListener listener : listeners) {
+        listener.finished(this, endTime);
+      }
+
+      current = 0;
+      if (repeat) {
+        engine.restart(endTime);
+        stepStart = engine.getStepStart();
+        for (SessionListener listener : listeners) {
+          listener.started(this);
+        }
+      } else {
+        engine.stop();
+      }
+    }
+
+    this.generation++;
+    scheduleNext();
+  }
+
+  private void jumped() {
+    current = Math.min(engine.getCurrent(), engine.size() - 1);
+    stepStart = engine.getStepStart();
+    generation++;
+
+    for (SessionListener listener : listeners) {
+      listener.jumped(this, current);
+    }
+    scheduleNext();
+  }
+
+  private void scheduleNext() {
+    if (engine.isRunning() && !engine.isPaused()) {
+      scheduler.schedule(this, generation, engine.getDeadline());
+    }
+  }
+}
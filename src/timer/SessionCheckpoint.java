@@ -0,0 +1,272 @@
+package timer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the state of a running session in a small memory mapped file, so a run can be resumed
+ * after the application was closed or crashed. Writing a checkpoint only copies a few bytes into
+ * the mapped page, which the operating system writes back on its own even if the JVM dies; call
+ * {@link #force()} to write it to the disk right away.
+ * <p>
+ * The file has two slots of {@value #SLOT_SIZE} bytes, written alternately. Each slot holds a
+ * sequence number (long), a CRC32 of the rest of the slot (int), the length of the payload (short)
+ * and the payload: the flags (byte, 1 = paused, 2 = repeat), the time of the checkpoint in ms since
+ * the epoch (long), the elapsed time of the run (long), the current interval and the time left in
+ * it (int), the number of intervals (int), the total duration (long) and the UTF-8 length (short)
+ * and bytes of the preset name. A slot that was torn by a crash fails its CRC, so the other slot
+ * still holds the previous checkpoint. An empty payload means that nothing was running.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class SessionCheckpoint {
+  public static final int SLOT_SIZE = 512;
+
+  private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES + Short.BYTES;
+  private static final int FIXED_SIZE = 1 + 3 * Long.BYTES + 3 * Integer.BYTES + Short.BYTES;
+  private static final int MAX_NAME = SLOT_SIZE - HEADER_SIZE - FIXED_SIZE;
+  private static final byte PAUSED = 1;
+  private static final byte REPEAT = 2;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final CRC32 crc;
+  private long sequence;
+
+  // the encoded name of the last preset, which rarely changes between checkpoints
+  private String name;
+  private byte[] nameBytes;
+
+  /**
+   * Opens the checkpoint file, creating it if necessary.
+   *
+   * @param file the file
+   *
+   * @throws IllegalArgumentException if the file cannot be opened
+   */
+  public SessionCheckpoint(Path file) {
+    try {
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT_SIZE);
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Invalid path");
+    }
+    crc = new CRC32();
+    sequence = Math.max(sequence(0), sequence(1));
+  }
+
+  /**
+   * Returns the state of the latest checkpoint.
+   *
+   * @return the state, or null if nothing was running
+   */
+  public State read() {
+    int slot = latestSlot();
+    if (slot < 0) {
+      return null;
+    }
+
+    int position = slot * SLOT_SIZE + HEADER_SIZE;
+    int length = buffer.getShort(slot * SLOT_SIZE + Long.BYTES + Integer.BYTES);
+    if (length == 0) {
+      return null;
+    }
+
+    ByteBuffer payload = buffer.slice(position, length);
+    byte flags = payload.get();
+    long time = payload.getLong();
+    long elapsed = payload.getLong();
+    int current = payload.getInt();
+    int remaining = payload.getInt();
+    int count = payload.getInt();
+    long total = payload.getLong();
+    byte[] name = new byte[payload.getShort()];
+    payload.get(name);
+
+    return new State(new String(name, StandardCharsets.UTF_8), time, elapsed, current, remaining,
+      count, total, (flags & PAUSED) != 0, (flags & REPEAT) != 0);
+  }
+
+  /**
+   * Writes a checkpoint into the older slot.
+   *
+   * @param state the state of the session
+   */
+  public void write(State state) {
+    if (!state.getPreset().equals(name)) {
+      name = state.getPreset();
+      nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    }
+    if (nameBytes.length > MAX_NAME) {
+      // such a name cannot be a file name anyway
+      return;
+    }
+
+    int start = begin(FIXED_SIZE + nameBytes.length);
+    buffer.put((byte) ((state.isPaused() ? PAUSED : 0) | (state.isRepeat() ? REPEAT : 0)));
+    buffer.putLong(state.getTime());
+    buffer.putLong(state.getElapsed());
+    buffer.putInt(state.getCurrent());
+    buffer.putInt(state.getRemaining());
+    buffer.putInt(state.getCount());
+    buffer.putLong(state.getTotal());
+    buffer.putShort((short) nameBytes.length);
+    buffer.put(nameBytes);
+    end(start);
+  }
+
+  /**
+   * Writes a checkpoint telling that nothing is running.
+   */
+  public void clear() {
+    end(begin(0));
+  }
+
+  /**
+   * Writes the checkpoints to the disk.
+   */
+  public void force() {
+    buffer.force();
+  }
+
+  public void close() {
+    force();
+    try {
+      channel.close();
+    } catch (final IOException e) {
+      // the mapping stays valid until it is collected
+    }
+  }
+
+  private int begin(int length) {
+    sequence++;
+    int start = (int) (sequence & 1) * SLOT_SIZE;
+    buffer.putLong(start, sequence);
+    buffer.putShort(start + Long.BYTES + Integer.BYTES, (short) length);
+    buffer.position(start + HEADER_SIZE);
+    return start;
+  }
+
+  private void end(int start) {
+    // the CRC is written last and covers the sequence number, so a torn slot is never used
+    int length = buffer.getShort(start + Long.BYTES + Integer.BYTES);
+    buffer.putInt(start + Long.BYTES, checksum(start, length));
+  }
+
+  private int latestSlot() {
+    long first = sequence(0);
+    long second = sequence(1);
+    if (first == 0 && second == 0) {
+      return -1;
+    }
+    return first > second ? 0 : 1;
+  }
+
+  /**
+   * Returns the sequence number of the given slot.
+   *
+   * @return the sequence number, or 0 if the slot is empty or broken
+   */
+  private long sequence(int slot) {
+    int start = slot * SLOT_SIZE;
+    int length = buffer.getShort(start + Long.BYTES + Integer.BYTES);
+    if (length < 0 || length > SLOT_SIZE - HEADER_SIZE) {
+      return 0;
+    }
+    if (buffer.getInt(start + Long.BYTES) != checksum(start, length)) {
+      return 0;
+    }
+    return buffer.getLong(start);
+  }
+
+  private int checksum(int start, int length) {
+    crc.reset();
+    crc.update(buffer.slice(start, Long.BYTES));
+    crc.update(buffer.slice(start + Long.BYTES + Integer.BYTES, Short.BYTES + length));
+    return (int) crc.getValue();
+  }
+
+  /**
+   * The state of a session at a checkpoint.
+   */
+  public static final class State {
+    private final String preset;
+    private final long time;
+    private final long elapsed;
+    private final int current;
+    private final int remaining;
+    private final int count;
+    private final long total;
+    private final boolean paused;
+    private final boolean repeat;
+
+    /**
+     * Creates a state.
+     *
+     * @param preset    the name of the preset that is running
+     * @param time      the time of the checkpoint in ms since the epoch
+     * @param elapsed   the time since the start of the run in ms, see {@link Session#getElapsed()}
+     * @param current   the index of the current interval
+     * @param remaining the time left in the current step in ms
+     * @param count     the number of intervals of the run
+     * @param total     the duration of the run in ms
+     * @param paused    whether the session is paused
+     * @param repeat    whether the session repeats
+     */
+    public State(String preset, long time, long elapsed, int current, int remaining, int count,
+      long total, boolean paused, boolean repeat) {
+      this.preset = preset;
+      this.time = time;
+      this.elapsed = elapsed;
+      this.current = current;
+      this.remaining = remaining;
+      this.count = count;
+      this.total = total;
+      this.paused = paused;
+      this.repeat = repeat;
+    }
+
+    public String getPreset() {
+      return preset;
+    }
+
+    public long getTime() {
+      return time;
+    }
+
+    public long getElapsed() {
+      return elapsed;
+    }
+
+    public int getCurrent() {
+      return current;
+    }
+
+    public int getRemaining() {
+      return remaining;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public boolean isPaused() {
+      return paused;
+    }
+
+    public boolean isRepeat() {
+      return repeat;
+    }
+  }
+}
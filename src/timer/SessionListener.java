@@ -0,0 +1,70 @@
+package timer;
+
+/**
+ * A listener for the events of a {@link Session}. Transition events are delivered on the thread of
+ * the session's {@link SessionScheduler}, so implementations must return quickly and hand any
+ * longer work off to another thread.
+ */
+public interface SessionListener {
+
+  /**
+   * Called when a run of the session starts, including every repetition.
+   *
+   * @param session the session
+   */
+  default void started(Session session) {
+  }
+
+  /**
+   * Called when an interval other than the first one starts, and when the next step inside a
+   * {@link RepeatGroup} starts. In the latter case the index is that of the group.
+   *
+   * @param session the session
+   * @param index   the index of the interval that started
+   * @param time    the scheduled start of the interval in {@link System#nanoTime()} units
+   */
+  default void transition(Session session, int index, long time) {
+  }
+
+  /**
+   * Called when the run was moved to another point in time, see {@link Session#seek(long)}.
+   *
+   * @param session the session
+   * @param index   the index of the interval running after the move
+   */
+  default void jumped(Session session, int index) {
+  }
+
+  /**
+   * Called when a running session is paused.
+   *
+   * @param session the session
+   */
+  default void paused(Session session) {
+  }
+
+  /**
+   * Called when a paused session is resumed.
+   *
+   * @param session the session
+   */
+  default void resumed(Session session) {
+  }
+
+  /**
+   * Called when a run is stopped before its end.
+   *
+   * @param session the session
+   */
+  default void stopped(Session session) {
+  }
+
+  /**
+   * Called when the last interval of a run ends.
+   *
+   * @param session the session
+   * @param time    the scheduled end of the run in {@link System#nanoTime()} units
+   */
+  default void finished(Session session, long time) {
+  }
+}
@@ -0,0 +1,119 @@
+package timer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives any number of {@link Session}s from a single thread. Every running session has at most
+ * one pending wakeup in a {@link TimingWheel}; wakeups that became stale because the session was
+ * paused or stopped are simply ignored when they expire, so nothing ever has to be removed from
+ * the wheel.
+ */
+public class SessionScheduler {
+  public static final long DEFAULT_TICK = 5_000_000L;
+
+  private static SessionScheduler defaultScheduler;
+
+  private static class Wakeup {
+    final Session session;
+    final long generation;
+    final long deadline;
+
+    Wakeup(Session session, long generation, long deadline) {
+      this.session = session;
+      this.generation = generation;
+      this.deadline = deadline;
+    }
+  }
+
+  private final TimingWheel<Wakeup> wheel;
+  private final Queue<Wakeup> pending;
+  private final Thread thread;
+  private volatile boolean running;
+
+  /**
+   * Creates a scheduler with the default tick length of 5 ms.
+   */
+  public SessionScheduler() {
+    this(DEFAULT_TICK);
+  }
+
+  /**
+   * Creates a scheduler. Sessions are woken up at most one tick after their deadlines, but the
+   * time they report is always exact.
+   *
+   * @param tickNanos the length of one tick of the timing wheel in nanoseconds
+   */
+  public SessionScheduler(long tickNanos) {
+    wheel = new TimingWheel<>(tickNanos, System.nanoTime());
+    pending = new ConcurrentLinkedQueue<>();
+    running = true;
+
+    thread = new Thread(this::run, "session-scheduler");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Returns a scheduler shared by the whole application, starting it if necessary.
+   *
+   * @return the default scheduler
+   */
+  public static synchronized SessionScheduler getDefault() {
+    if (defaultScheduler == null) {
+      defaultScheduler = new SessionScheduler();
+    }
+    return defaultScheduler;
+  }
+
+  /**
+   * Stops the scheduler thread. Pending wakeups are discarded.
+   */
+  public void shutdown() {
+    running = false;
+    LockSupport.unpark(thread);
+  }
+
+  void schedule(Session session, long generation, long deadline) {
+    pending.add(new Wakeup(session, generation, deadline));
+    LockSupport.unpark(thread);
+  }
+
+  private void run() {
+    while (running) {
+      Wakeup wakeup;
+      while ((wakeup = pending.poll()) != null) {
+        wheel.schedule(wakeup.deadline, wakeup);
+      }
+
+      long now = System.nanoTime();
+      wheel.advance(now, this::expire);
+
+      if (!pending.isEmpty()) {
+        continue;
+      }
+
+      if (wheel.isEmpty()) {
+        LockSupport.park(this);
+      } else {
+        LockSupport.parkNanos(this, wheel.nextWakeup() - now);
+      }
+    }
+  }
+
+  private void expire(Wakeup wakeup) {
+    if (TimingStats.ENABLED) {
+      TimingStats.get().recordTransition(System.nanoTime() - wakeup.deadline);
+    }
+
+    try {
+      wakeup.session.expire(wakeup.generation);
+    } catch (RuntimeException e) {
+      // one misbehaving listener must not stop every other session, the thread group reports it
+      // unless a handler was set
+      Thread current = Thread.currentThread();
+      current.getUncaughtExceptionHandler().uncaughtException(current, e);
+    }
+  }
+}
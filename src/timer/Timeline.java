@@ -0,0 +1,179 @@
+package timer;
+
+import java.util.List;
+
+/**
+ * A sequence of intervals compiled for running: the end of every interval is computed once from
+ * the cumulative durations, so the interval running at any point in time is found by a binary
+ * search, and inside {@link RepeatGroup repeat groups} by a division and another binary search per
+ * level. A timeline is immutable, it has to be compiled again when the intervals change.
+ * <p>
+ * Only the columns of the intervals are kept, see {@link IntervalList#snapshot()}; an interval
+ * object is created for the running step, not for every interval of the sequence.
+ */
+public class Timeline {
+  private final IntervalList.Snapshot intervals;
+
+  // ends[i] is the end of the i-th interval in ms, relative to the start of the sequence
+  private final long[] ends;
+
+  /**
+   * Compiles the given intervals. A {@link IntervalList#snapshot() snapshot} of an interval list
+   * is compiled from its columns, other lists are copied into columns first.
+   *
+   * @param intervals the intervals
+   *
+   * @throws IllegalArgumentException if there are no intervals
+   */
+  public Timeline(List<Interval> intervals) {
+    if (intervals.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one interval");
+    }
+
+    this.intervals = IntervalList.Snapshot.of(intervals);
+    this.ends = new long[this.intervals.size()];
+    long total = 0;
+    for (int i = 0; i < ends.length; i++) {
+      total += this.intervals.getTotalDuration(i);
+      ends[i] = total;
+    }
+  }
+
+  public int size() {
+    return ends.length;
+  }
+
+  public Interval get(int index) {
+    return intervals.get(index);
+  }
+
+  /**
+   * Returns the duration of the whole sequence.
+   *
+   * @return the total duration in ms
+   */
+  public long getTotalDuration() {
+    return ends[ends.length - 1];
+  }
+
+  /**
+   * Returns the start of the given interval.
+   *
+   * @param index the index of the interval
+   *
+   * @return the start in ms, relative to the start of the sequence
+   */
+  public long getStart(int index) {
+    return index == 0 ? 0 : ends[index - 1];
+  }
+
+  /**
+   * Returns the end of the given interval.
+   *
+   * @param index the index of the interval
+   *
+   * @return the end in ms, relative to the start of the sequence
+   */
+  public long getEnd(int index) {
+    return ends[index];
+  }
+
+  /**
+   * Returns the index of the interval running at the given time.
+   *
+   * @param time the time in ms, relative to the start of the sequence
+   *
+   * @return the index of the interval, or the number of intervals if the sequence has ended
+   */
+  public int indexAt(long time) {
+    // the first interval ending after the time
+    int low = 0;
+    int high = ends.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ends[mid] > time) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the single interval running at the given time, which is the interval itself or the
+   * interval running inside it if it is a repeat group.
+   *
+   * @param index the index of the interval running at the given time
+   * @param time  the time in ms, relative to the start of the sequence
+   *
+   * @return the running step
+   */
+  public Step stepAt(int index, long time) {
+    long start = getStart(index);
+    RepeatGroup group = intervals.getGroup(index);
+    if (group == null) {
+      return new Step(intervals, index, null, intervals.getDuration(index), start);
+    }
+
+    Interval interval = group;
+    while (interval instanceof RepeatGroup) {
+      group = (RepeatGroup) interval;
+      long pass = group.getPassDuration();
+      start += (time - start) / pass * pass;
+
+      int child = group.childAt(time - start);
+      start += group.childStart(child);
+      interval = group.getChildren().get(child);
+    }
+    return new Step(null, 0, interval, interval.getDuration(), start);
+  }
+
+  /**
+   * A single interval at a position of a timeline. An interval at the top level of the sequence is
+   * only created when it is asked for.
+   */
+  public static final class Step {
+    private final IntervalList.Snapshot intervals;
+    private final int index;
+    private final int duration;
+    private final long start;
+    // a child of a group, or the top level interval once it was created
+    private Interval interval;
+
+    private Step(IntervalList.Snapshot intervals, int index, Interval interval, int duration,
+                 long start) {
+      this.intervals = intervals;
+      this.index = index;
+      this.interval = interval;
+      this.duration = duration;
+      this.start = start;
+    }
+
+    public Interval getInterval() {
+      // intervals are immutable, so a step shared between threads may create one twice at worst
+      if (interval == null) {
+        interval = intervals.get(index);
+      }
+      return interval;
+    }
+
+    /**
+     * Returns the start of the step.
+     *
+     * @return the start in ms, relative to the start of the sequence
+     */
+    public long getStart() {
+      return start;
+    }
+
+    /**
+     * Returns the end of the step.
+     *
+     * @return the end in ms, relative to the start of the sequence
+     */
+    public long getEnd() {
+      return start + duration;
+    }
+  }
+}
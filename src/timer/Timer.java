@@ -1,69 +1,132 @@
 package timer;
 
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.AudioClip;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class Timer {
-  private static final int UPDATE_RATE = 50;
   private static final String PRESET_DIR = "presets/";
-
-  private Timeline timeline;
+  private static final String HISTORY_DIR = "history/";
+  private static final String CHECKPOINT_FILE = "checkpoint.bin";
+  private static final int LOAD_CHUNK = 1000;
+  private static final String DEFAULT_PRESET = "Default";
+  private static final String NEW_PRESET = "<new preset>";
+  // draws the countdown from a glyph atlas instead of the label, for large displays
+  private static final boolean CANVAS_COUNTDOWN = Boolean.getBoolean("jtimer.canvas");
+
+  private PauseTransition ticker;
+  private Session session;
+  private AudioCues cues;
   private ObservableList<String> presets;
-  private ObservableList<Interval> intervals;
+  private FilteredList<String> filteredPresets;
+  private PresetCatalog catalog;
+  private PresetStore store;
+  private PresetWatcher watcher;
+  private HistoryJournal history;
+  private HistoryRecorder recorder;
+  private SessionCheckpoint checkpoint;
+  private BroadcastServer broadcast;
+  private SessionCheckpoint.State resumeState;
+  private int loadGeneration;
+  private boolean loading;
+  private boolean updatingPresets;
+  private boolean presetChanged;
+  private IntervalList intervals;
+  private EditHistory editHistory;
   private int current;
   private int remaining;
+  private int displayed;
+  private long displayedTotal;
+  private long tickDue;
+
+  // compiled from the intervals on demand, dropped whenever the list changes
+  private Timeline timeline;
 
   private Stage stage;
   private Label remainingLabel;
+  private CountdownCanvas remainingCanvas;
+  private Label stepLabel;
+  private ProgressBar progressBar;
+  private Label totalLabel;
+  private Button previousButton;
   private Button startButton;
   private Button pauseButton;
+  private Button nextButton;
   private ComboBox<String> presetComboBox;
+  private TextField searchField;
   private Button renamePresetButton;
   private Button removePresetButton;
+  private MenuButton importPresetButton;
   private CheckBox repeatCheckBox;
   private ListView<Interval> listView;
   private Button newIntervalButton;
   private Button removeIntervalButton;
+  private Button undoButton;
+  private Button redoButton;
 
   public Timer(Stage stage) {
-    timeline = new Timeline();
+    ticker = new PauseTransition();
+    session = new Session(SessionScheduler.getDefault());
+    cues = new AudioCues();
+    store = new PresetStore();
     presets = FXCollections.observableArrayList();
-    intervals = FXCollections.observableArrayList();
+    filteredPresets = new FilteredList<>(presets);
+    intervals = new IntervalList();
+    editHistory = new EditHistory(intervals);
     current = 0;
     remaining = 0;
+    displayed = -1;
+    displayedTotal = -1;
 
     this.stage = stage;
     remainingLabel = new Label();
+    remainingCanvas = CANVAS_COUNTDOWN ? new CountdownCanvas(80) : null;
+    stepLabel = new Label();
+    progressBar = new ProgressBar(0);
+    totalLabel = new Label();
+    previousButton = new Button("<<");
     startButton = new Button("START");
     pauseButton = new Button("PAUSE");
+    nextButton = new Button(">>");
     presetComboBox = new ComboBox<>();
+    searchField = new TextField();
     renamePresetButton = new Button("Rename");
     removePresetButton = new Button("Remove");
+    importPresetButton = new MenuButton("Import");
     repeatCheckBox = new CheckBox("Repeat");
     listView = new ListView<>(intervals);
     newIntervalButton = new Button("New interval");
     removeIntervalButton = new Button("Remove selected");
+    undoButton = new Button("Undo");
+    redoButton = new Button("Redo");
   }
 
   public void open() {
@@ -77,7 +140,79 @@ public class Timer {
     reset();
 
     initializePresets();
+    initializeHistory();
+    initializeBroadcast();
     initializeUi();
+    initializeCheckpoint();
+  }
+
+  private void initializeHistory() {
+    try {
+      history = new HistoryJournal(Paths.get(HISTORY_DIR));
+    } catch (final IllegalArgumentException e) {
+      Alert alert = new Alert(Alert.AlertType.ERROR, "Could not open the session history");
+      alert.show();
+      return;
+    }
+
+    // the recorder runs on the scheduler thread, appending to the journal never blocks
+    recorder = new HistoryRecorder(history::append);
+    session.addListener(recorder);
+  }
+
+  /**
+   * Mirrors the session to other displays if a port is given with {@code -Djtimer.broadcast}, see
+   * {@code main.JTimerMirror}.
+   */
+  private void initializeBroadcast() {
+    Integer port = Integer.getInteger("jtimer.broadcast");
+    if (port == null) {
+      return;
+    }
+
+    try {
+      broadcast = new BroadcastServer(port);
+    } catch (final IllegalArgumentException e) {
+      Alert alert = new Alert(Alert.AlertType.ERROR, e.getMessage());
+      alert.setHeaderText("Could not start broadcasting");
+      alert.show();
+      return;
+    }
+    session.addListener(new BroadcastPublisher(broadcast));
+  }
+
+  /**
+   * Opens the checkpoint of the last run and offers to resume it if it was interrupted. Must be
+   * called after the presets are shown, because resuming selects the preset of the run.
+   */
+  private void initializeCheckpoint() {
+    try {
+      checkpoint = new SessionCheckpoint(Paths.get(CHECKPOINT_FILE));
+    } catch (final IllegalArgumentException e) {
+      // runs simply cannot be resumed
+      return;
+    }
+
+    SessionCheckpoint.State state = checkpoint.read();
+    if (state == null || !presets.contains(state.getPreset())) {
+      return;
+    }
+
+    Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+      "Resume " + state.getPreset() + " at " + DurationCodec.formatLong(state.getElapsed()) + " of "
+        + DurationCodec.formatLong(state.getTotal()) + "?");
+    alert.setHeaderText("The last run was interrupted");
+    if (alert.showAndWait().filter(ButtonType.OK::equals).isEmpty()) {
+      checkpoint.clear();
+      return;
+    }
+
+    // a stored preset loads in the background, the run is resumed once it is complete
+    resumeState = state;
+    presetComboBox.getSelectionModel().select(state.getPreset());
+    if (!loading) {
+      resumeRun();
+    }
   }
 
   private void initializePresets() {
@@ -91,28 +226,227 @@ public class Timer {
       }
     }
 
-    File[] files = dir.listFiles((file, name) -> name.endsWith(PresetFile.EXTENSION));
+    // the catalog only reads presets that changed since the last launch
+    catalog = new PresetCatalog(dir.toPath());
+    try {
+      catalog.refresh();
+    } catch (final IllegalArgumentException e) {
+      Alert alert = new Alert(Alert.AlertType.ERROR, "Could not read the directory of presets");
+      alert.show();
+    }
+
+    presets.add(DEFAULT_PRESET);
+    presets.addAll(catalog.getNames());
+    presets.add(NEW_PRESET);
+
+    store.setOnSaved((path, saved) -> Platform.runLater(() -> {
+      catalog.update(path.getFileName().toString(), saved);
+      filterPresets();
+    }));
+    store.setOnError(e -> Platform.runLater(() -> {
+      Alert alert = new Alert(Alert.AlertType.ERROR, "Could not save the preset");
+      alert.show();
+    }));
+
+    // presets copied into the directory by other programs show up while the app is running
+    try {
+      watcher = new PresetWatcher(dir.toPath(), (changed, deleted, overflow) -> Platform.runLater(
+        () -> presetFilesChanged(changed, deleted, overflow)));
+    } catch (final IllegalArgumentException e) {
+      // without a watcher the list is only read at startup
+    }
+  }
+
+  /**
+   * Applies a batch of changes made to the preset directory by other programs. Only the affected
+   * entries of the catalog and the drop-down list are updated, unless the watcher lost track of
+   * the directory. Files this application wrote itself are already known to the catalog and
+   * skipped.
+   *
+   * @param changed  names of the preset files that were created or modified
+   * @param deleted  names of the preset files that were deleted
+   * @param overflow true if the whole directory needs to be checked again
+   */
+  private void presetFilesChanged(Set<String> changed, Set<String> deleted, boolean overflow) {
+    String current = presetComboBox.getValue();
+    boolean reload = false;
+
+    updatingPresets = true;
+    if (overflow) {
+      reload = isStoredPreset(current) && !catalog.isCurrent(presetFilename(current));
+      try {
+        catalog.refresh();
+      } catch (final IllegalArgumentException e) {
+        updatingPresets = false;
+        return;
+      }
+
+      presets.removeIf(
+        name -> isStoredPreset(name) && !name.equals(current) && catalog.find(name) == null);
+      for (String name : catalog.getNames()) {
+        insertPreset(name);
+      }
+    } else {
+      for (String filename : deleted) {
+        catalog.remove(filename);
 
-    presets.add("Default");
-    if (files != null) {
-      Arrays.sort(files);
-      for (File f : files) {
-        String name = f.getName();
-        presets.add(name.substring(0, name.length() - PresetFile.EXTENSION.length()));
+        // the current preset stays in the list, it is written again when it is saved
+        String name = presetName(filename);
+        if (catalog.find(name) == null && !name.equals(current)) {
+          removePreset(name);
+        }
       }
+
+      for (String filename : changed) {
+        String name = presetName(filename);
+        insertPreset(name);
+
+        if (!catalog.isCurrent(filename)) {
+          catalog.update(filename);
+          reload |= name.equals(current) && filename.equals(presetFilename(name));
+        }
+      }
+    }
+    updatingPresets = false;
+    filterPresets();
+
+    if (reload) {
+      // a running session keeps its intervals, the preset is reloaded once it stops
+      if (session.isRunning()) {
+        presetChanged = true;
+      } else {
+        loadPreset(current);
+      }
+    }
+  }
+
+  /**
+   * Narrows the drop-down list down to the presets matching the search field, see
+   * {@link PresetIndex} for the queries. The default preset, the entry for a new preset and the
+   * current preset are always kept, so filtering never changes the selection.
+   */
+  private void filterPresets() {
+    filterPresets(presetComboBox.getValue());
+  }
+
+  /**
+   * Narrows the drop-down list down like {@link #filterPresets()}, keeping the given preset
+   * instead of the current one, e.g. a preset that is about to be selected.
+   *
+   * @param current the name of the preset to keep
+   */
+  private void filterPresets(String current) {
+    // the filter may be updated while the list itself is being updated
+    boolean updating = updatingPresets;
+    String query = searchField.getText();
+    if (query == null || query.trim().isEmpty()) {
+      if (filteredPresets.getPredicate() != null) {
+        updatingPresets = true;
+        filteredPresets.setPredicate(null);
+        updatingPresets = updating;
+      }
+      return;
+    }
+
+    Set<String> names = new HashSet<>();
+    for (String filename : catalog.getIndex().search(query)) {
+      names.add(presetName(filename));
+    }
+
+    updatingPresets = true;
+    filteredPresets.setPredicate(
+      name -> !isStoredPreset(name) || name.equals(current) || names.contains(name));
+    updatingPresets = updating;
+  }
+
+  /**
+   * Inserts the name of a preset into the drop-down list, keeping the names in alphabetical
+   * order. Does nothing if the name is already in the list.
+   *
+   * @param name the name of the preset
+   */
+  private void insertPreset(String name) {
+    List<String> names = presets.subList(1, presets.size() - 1);
+    int i = Collections.binarySearch(names, name);
+    if (i < 0) {
+      presets.add(-i, name);
+    }
+  }
+
+  private void removePreset(String name) {
+    List<String> names = presets.subList(1, presets.size() - 1);
+    int i = Collections.binarySearch(names, name);
+    if (i >= 0) {
+      presets.remove(i + 1);
+    }
+  }
+
+  private boolean isStoredPreset(String name) {
+    return name != null && !name.equals(DEFAULT_PRESET) && !name.equals(NEW_PRESET);
+  }
+
+  private static String presetName(String filename) {
+    return filename.substring(0, filename.lastIndexOf('.'));
+  }
+
+  /**
+   * Describes a preset for the drop-down list, using the numbers stored in the catalog.
+   *
+   * @param name the name of the preset
+   *
+   * @return the name followed by the number of intervals and the total duration, if known
+   */
+  private String describePreset(String name) {
+    PresetCatalog.Entry entry = catalog.find(name);
+    if (entry == null || entry.getSummary() == null) {
+      return name;
     }
-    presets.add("<new preset>");
+
+    PresetSummary summary = entry.getSummary();
+    return name + " (" + summary.getCount() + " intervals, "
+      + DurationCodec.formatLong(summary.getTotalDuration()) + ")";
+  }
+
+  /**
+   * Returns the file name of the given preset inside the preset directory. Presets are stored as
+   * text unless the catalog knows a binary file with the same name.
+   *
+   * @param name the name of the preset
+   *
+   * @return the file name of the preset
+   */
+  private String presetFilename(String name) {
+    PresetCatalog.Entry entry = catalog.find(name);
+    return entry != null ? entry.getFilename() : name + PresetFile.EXTENSION;
   }
 
   private void initializeUi() {
     remainingLabel.setFont(Font.font("System", FontWeight.BOLD, 80));
     remainingLabel.setAlignment(Pos.CENTER);
     remainingLabel.setMaxWidth(Double.MAX_VALUE);
+    Node remainingNode = remainingLabel;
+    if (remainingCanvas != null) {
+      // the countdown grows with the window and shares the extra space with the list
+      remainingCanvas.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+      VBox.setVgrow(remainingCanvas, Priority.ALWAYS);
+      remainingNode = remainingCanvas;
+    }
+    stepLabel.setAlignment(Pos.CENTER);
+    stepLabel.setMaxWidth(Double.MAX_VALUE);
+    stepLabel.managedProperty().bind(stepLabel.visibleProperty());
+    stepLabel.setVisible(false);
 
     HBox.setHgrow(startButton, Priority.ALWAYS);
     HBox.setHgrow(pauseButton, Priority.ALWAYS);
     startButton.setMaxWidth(Double.MAX_VALUE);
     pauseButton.setMaxWidth(Double.MAX_VALUE);
+    previousButton.setMaxHeight(Double.MAX_VALUE);
+    nextButton.setMaxHeight(Double.MAX_VALUE);
+
+    HBox.setHgrow(progressBar, Priority.ALWAYS);
+    progressBar.setMaxWidth(Double.MAX_VALUE);
+    HBox progressBox = new HBox(5, progressBar, totalLabel);
+    progressBox.setAlignment(Pos.CENTER);
 
     listView.setEditable(true);
     listView.setPrefHeight(150);
@@ -125,18 +459,30 @@ public class Timer {
     newIntervalButton.setMaxWidth(Double.MAX_VALUE);
     removeIntervalButton.setMaxWidth(Double.MAX_VALUE);
 
+    HBox.setHgrow(presetComboBox, Priority.ALWAYS);
     presetComboBox.setMaxWidth(Double.MAX_VALUE);
-    presetComboBox.setItems(presets);
+    presetComboBox.setItems(filteredPresets);
+    searchField.setPromptText("Search presets");
+    searchField.setPrefColumnCount(12);
+    HBox presetBox = new HBox(5, presetComboBox, searchField);
+    presetComboBox.setCellFactory(comboListView -> new ListCell<>() {
+      protected void updateItem(String name, boolean empty) {
+        super.updateItem(name, empty);
+        setText(empty || name == null ? null : describePreset(name));
+      }
+    });
 
-    HBox presetButtons = new HBox(5, renamePresetButton, removePresetButton);
+    HBox presetButtons = new HBox(5, renamePresetButton, removePresetButton, importPresetButton);
 
     AnchorPane anchorPane = new AnchorPane(presetButtons, repeatCheckBox);
     AnchorPane.setRightAnchor(repeatCheckBox, 5.0);
     AnchorPane.setTopAnchor(repeatCheckBox, 5.0);
 
     VBox layout =
-      new VBox(5, remainingLabel, new HBox(5, startButton, pauseButton), presetComboBox, anchorPane,
-        new Separator(), listView, new HBox(5, newIntervalButton, removeIntervalButton));
+      new VBox(5, remainingNode, stepLabel, progressBox,
+        new HBox(5, previousButton, startButton, pauseButton, nextButton), presetBox,
+        anchorPane, new Separator(), listView,
+        new HBox(5, newIntervalButton, removeIntervalButton, undoButton, redoButton));
     layout.setPadding(new Insets(5));
 
     // initialize button actions and set appropriate callbacks
@@ -146,6 +492,9 @@ public class Timer {
     presetComboBox.getSelectionModel().select(0);
 
     Scene scene = new Scene(layout);
+    scene.getAccelerators().put(KeyCombination.keyCombination("Shortcut+Z"), this::undo);
+    scene.getAccelerators().put(KeyCombination.keyCombination("Shortcut+Y"), this::redo);
+    scene.getAccelerators().put(KeyCombination.keyCombination("Shortcut+Shift+Z"), this::redo);
     stage.setScene(scene);
   }
 
@@ -153,9 +502,40 @@ public class Timer {
     // button actions
     startButton.setOnAction(actionEvent -> start());
     pauseButton.setOnAction(actionEvent -> pause());
+    previousButton.setOnAction(actionEvent -> {
+      if (session.isRunning()) {
+        session.skipPrevious();
+      }
+    });
+    nextButton.setOnAction(actionEvent -> {
+      if (session.isRunning()) {
+        session.skipNext();
+      }
+    });
 
     renamePresetButton.setOnAction(actionEvent -> renameCurrentPreset());
     removePresetButton.setOnAction(actionEvent -> removeCurrentPreset());
+    searchField.textProperty().addListener((observable, oldText, newText) -> filterPresets());
+    MenuItem importFolder = new MenuItem("Folder...");
+    importFolder.setOnAction(actionEvent -> {
+      DirectoryChooser chooser = new DirectoryChooser();
+      chooser.setTitle("Import presets");
+      File source = chooser.showDialog(stage);
+      if (source != null) {
+        importPresets(source);
+      }
+    });
+    MenuItem importArchive = new MenuItem("Zip archive...");
+    importArchive.setOnAction(actionEvent -> {
+      FileChooser chooser = new FileChooser();
+      chooser.setTitle("Import presets");
+      chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip archives", "*.zip"));
+      File source = chooser.showOpenDialog(stage);
+      if (source != null) {
+        importPresets(source);
+      }
+    });
+    importPresetButton.getItems().addAll(importFolder, importArchive);
 
     newIntervalButton.setOnAction(actionEvent -> {
       intervals.add(new Interval());
@@ -167,124 +547,533 @@ public class Timer {
       listView.edit(intervals.size() - 1);
     });
 
-    removeIntervalButton.setOnAction(
-      actionEvent -> intervals.removeAll(listView.getSelectionModel().getSelectedItems()));
+    removeIntervalButton.setOnAction(actionEvent -> intervals.removeIndices(selectedIndices()));
+    undoButton.setOnAction(actionEvent -> undo());
+    redoButton.setOnAction(actionEvent -> redo());
+    editHistory.setOnChanged(this::updateHistoryButtons);
+    listView.setContextMenu(createIntervalMenu());
+    intervals.addListener((ListChangeListener<Interval>) change -> {
+      timeline = null;
+      if (!loading && !session.isRunning()) {
+        updateTotal();
+      }
+    });
 
     // other callbacks
-    presetComboBox.getSelectionModel().selectedIndexProperty().addListener(
-      (observableValue, oldIndex, newIndex) -> changePreset(oldIndex.intValue(),
-        newIndex.intValue()));
+    // the session calls these on its scheduler thread
+    session.addListener(new SessionListener() {
+      public void started(Session session) {
+        runLater(Timer.this::runStarted);
+      }
+
+      public void transition(Session session, int index, long time) {
+        runLater(Timer.this::intervalStarted);
+      }
+
+      public void jumped(Session session, int index) {
+        runLater(Timer.this::runJumped);
+      }
+
+      public void finished(Session session, long time) {
+        runLater(Timer.this::runFinished);
+      }
+    });
+    repeatCheckBox.selectedProperty()
+      .addListener((observableValue, oldValue, newValue) -> session.setRepeat(newValue));
+    ticker.setOnFinished(actionEvent -> {
+      if (TimingStats.ENABLED) {
+        TimingStats.get().recordTick(System.nanoTime() - tickDue);
+      }
+      update();
+    });
+    stage.iconifiedProperty().addListener(observable -> visibilityChanged());
+    stage.showingProperty().addListener(observable -> visibilityChanged());
+
+    presetComboBox.getSelectionModel().selectedItemProperty()
+      .addListener((observableValue, oldName, newName) -> changePreset(oldName, newName));
+  }
+
+  /**
+   * Creates the context menu of the interval list, which edits all selected intervals at once.
+   * Moving only works if the selected intervals form a single block.
+   *
+   * @return the context menu
+   */
+  private ContextMenu createIntervalMenu() {
+    MenuItem duplicate = new MenuItem("Duplicate");
+    duplicate.setOnAction(actionEvent -> {
+      int[] block = selectedBlock();
+      if (block != null) {
+        intervals.duplicateBlock(block[0], block[1]);
+      }
+    });
+
+    MenuItem moveUp = new MenuItem("Move up");
+    moveUp.setOnAction(actionEvent -> moveSelected(-1));
+    MenuItem moveDown = new MenuItem("Move down");
+    moveDown.setOnAction(actionEvent -> moveSelected(1));
+
+    MenuItem setDuration = new MenuItem("Set duration...");
+    setDuration.setOnAction(actionEvent -> {
+      int[] selected = selectedIndices();
+      if (selected.length > 0) {
+        String duration = askForText("Set duration", "Please enter a duration (mm:ss)", "");
+        if (Interval.isValidDuration(duration)) {
+          intervals.setDurations(selected, Interval.stringToMs(duration));
+        } else if (!duration.equals("")) {
+          Alert alert = new Alert(Alert.AlertType.ERROR, "Duration must be between 00:01-59:59");
+          alert.show();
+        }
+      }
+    });
+
+    MenuItem setLabel = new MenuItem("Set label...");
+    setLabel.setOnAction(actionEvent -> {
+      int[] selected = selectedIndices();
+      if (selected.length > 0) {
+        String label = askForText("Set label", "Please enter a label", "");
+        if (!label.equals("")) {
+          intervals.setLabels(selected, label);
+        }
+      }
+    });
+
+    MenuItem repeat = new MenuItem("Repeat...");
+    repeat.setOnAction(actionEvent -> {
+      int[] block = selectedBlock();
+      if (block != null) {
+        String count = askForText("Repeat", "How many times should the intervals run?", "2");
+        try {
+          RepeatGroup group = new RepeatGroup(Integer.parseInt(count.trim()), "",
+            intervals.subList(block[0], block[1]));
+          intervals.replaceBlock(block[0], block[1], List.of(group));
+          listView.getSelectionModel().clearAndSelect(block[0]);
+        } catch (final IllegalArgumentException e) {
+          if (!count.equals("")) {
+            Alert alert = new Alert(Alert.AlertType.ERROR,
+              "Count must be between 1-" + RepeatGroup.MAX_COUNT);
+            alert.show();
+          }
+        }
+      }
+    });
+
+    MenuItem ungroup = new MenuItem("Ungroup");
+    ungroup.setOnAction(actionEvent -> {
+      int[] selected = selectedIndices();
+      if (selected.length == 1 && intervals.get(selected[0]) instanceof RepeatGroup) {
+        RepeatGroup group = (RepeatGroup) intervals.get(selected[0]);
+        List<Interval> expanded = new ArrayList<>();
+        for (int k = 0; k < group.getCount(); k++) {
+          for (Interval child : group.getChildren()) {
+            expanded.add(child.copy());
+          }
+        }
+        intervals.replaceBlock(selected[0], selected[0] + 1, expanded);
+      }
+    });
+
+    ContextMenu menu = new ContextMenu(duplicate, moveUp, moveDown, setDuration, setLabel,
+      new SeparatorMenuItem(), repeat, ungroup);
+    menu.setOnShowing(windowEvent -> {
+      boolean block = selectedBlock() != null;
+      duplicate.setDisable(!block || loading);
+      moveUp.setDisable(!block || loading);
+      moveDown.setDisable(!block || loading);
+      setDuration.setDisable(selectedIndices().length == 0 || loading);
+      setLabel.setDisable(selectedIndices().length == 0 || loading);
+      repeat.setDisable(!block || loading);
+      int[] selected = selectedIndices();
+      ungroup.setDisable(
+        selected.length != 1 || !(intervals.get(selected[0]) instanceof RepeatGroup) || loading);
+    });
+    return menu;
+  }
+
+  private int[] selectedIndices() {
+    return listView.getSelectionModel().getSelectedIndices().stream().mapToInt(Integer::intValue)
+      .toArray();
+  }
+
+  /**
+   * Returns the range of the selected intervals, if they form a single block.
+   *
+   * @return the index of the first and the index after the last selected interval, or null
+   */
+  private int[] selectedBlock() {
+    int[] selected = selectedIndices();
+    if (selected.length == 0) {
+      return null;
+    }
+
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int i : selected) {
+      min = Math.min(min, i);
+      max = Math.max(max, i);
+    }
+    return max - min + 1 == selected.length ? new int[] {min, max + 1} : null;
+  }
+
+  private void moveSelected(int offset) {
+    int[] block = selectedBlock();
+    if (block == null || block[0] + offset < 0 || block[1] + offset > intervals.size()) {
+      return;
+    }
+
+    intervals.moveBlock(block[0], block[1], block[0] + offset);
+    listView.getSelectionModel().clearSelection();
+    listView.getSelectionModel().selectRange(block[0] + offset, block[1] + offset);
   }
 
   private void start() {
-    if (timeline.getStatus() == Animation.Status.PAUSED) {
-      timeline.play();
+    if (session.isPaused()) {
+      session.resume();
+      saveCheckpoint();
+      armCues();
+      scheduleUpdate();
       startButton.setText("START");
       startButton.setDisable(true);
       pauseButton.setText("PAUSE");
       pauseButton.setDisable(false);
     } else if (intervals.size() > 0) {
-      reset();
-      updateIntervals();
-      startUi();
-
-      remaining = intervals.get(0).getDuration();
-
-      timeline.getKeyFrames()
-        .add(new KeyFrame(Duration.millis(UPDATE_RATE), actionEvent -> update()));
-      timeline.setCycleCount(Animation.INDEFINITE);
-      timeline.play();
+      session.setRepeat(repeatCheckBox.isSelected());
+      if (recorder != null) {
+        recorder.setPreset(presetComboBox.getValue());
+      }
+      session.start(getTimeline());
     }
   }
 
   private void pause() {
-    if (timeline.getStatus() == Animation.Status.RUNNING) {
-      startButton.setText("RESUME");
-      startButton.setDisable(false);
-      pauseButton.setText("STOP");
-    } else if (timeline.getStatus() == Animation.Status.PAUSED) {
+    if (session.isRunning() && !session.isPaused()) {
+      pausedUi();
+    } else if (session.isPaused()) {
       reset();
       pauseButton.setText("PAUSE");
     }
 
-    timeline.pause();
+    session.pause();
+    cues.cancel();
+    ticker.stop();
+
+    // a paused run may stay that way for long, so it goes to the disk right away
+    if (session.isPaused() && checkpoint != null) {
+      saveCheckpoint();
+      checkpoint.force();
+    }
+  }
+
+  private void pausedUi() {
+    startButton.setText("RESUME");
+    startButton.setDisable(false);
+    pauseButton.setText("STOP");
+  }
+
+  private void resumeRun() {
+    SessionCheckpoint.State state = resumeState;
+    resumeState = null;
+
+    if (intervals.isEmpty() || getTimeline().size() != state.getCount()
+      || getTimeline().getTotalDuration() != state.getTotal()) {
+      Alert alert = new Alert(Alert.AlertType.WARNING,
+        "The preset has changed since the run was interrupted");
+      alert.setHeaderText("Could not resume the run");
+      alert.show();
+      checkpoint.clear();
+      return;
+    }
+
+    repeatCheckBox.setSelected(state.isRepeat());
+    if (recorder != null) {
+      recorder.setPreset(state.getPreset());
+    }
+    session.setRepeat(state.isRepeat());
+    session.start(getTimeline(), state.getElapsed());
+    if (state.isPaused()) {
+      session.pause();
+    }
+
+    if (state.isPaused()) {
+      // after the UI has caught up with the start of the run
+      Platform.runLater(this::pausedUi);
+    }
+  }
+
+  /**
+   * Writes the state of the running session to the checkpoint. This only copies a few bytes into a
+   * mapped page, so it is done on every update of the label.
+   */
+  private void saveCheckpoint() {
+    if (checkpoint != null && session.isRunning()) {
+      checkpoint.write(new SessionCheckpoint.State(presetComboBox.getValue(),
+        System.currentTimeMillis(), session.getElapsed(), current, remaining, getTimeline().size(),
+        session.getTotalDuration(), session.isPaused(), session.isRepeat()));
+    }
   }
 
   private void reset() {
-    timeline.stop();
-    timeline.getKeyFrames().clear();
+    ticker.stop();
+    session.stop();
+    cues.cancel();
+    if (checkpoint != null) {
+      checkpoint.clear();
+    }
     remaining = 0;
-    current = 0;
+    stepLabel.setVisible(false);
+    resetIntervals();
     updateLabel();
-    for (Interval interval : intervals) {
-      interval.setState(IntervalState.Default);
-    }
-    listView.refresh();
     listView.scrollTo(0);
     startButton.setText("START");
     pauseButton.setText("PAUSE");
     stopUi();
+
+    if (presetChanged) {
+      presetChanged = false;
+      loadPreset(presetComboBox.getValue());
+    }
+  }
+
+  private void resetIntervals() {
+    // only the intervals up to the one after the current have left their default state
+    int last = Math.min(current + 1, intervals.size() - 1);
+    for (int i = 0; i <= last; i++) {
+      intervals.setState(i, IntervalState.Default);
+    }
+
+    current = 0;
+    displayed = -1;
+    displayedTotal = -1;
   }
 
   private void update() {
-    if (remaining <= 0) {
-      done();
+    remaining = session.getRemaining();
+    updateLabel();
+    saveCheckpoint();
+
+    if (session.isRunning() && !session.isPaused()) {
+      scheduleUpdate();
+    }
+  }
+
+  /**
+   * Schedules the next update for the moment the displayed second changes. While the stage is
+   * hidden nothing is rendered, so there is nothing to schedule - transitions are driven by the
+   * session and the label catches up as soon as the stage is shown again.
+   */
+  private void scheduleUpdate() {
+    ticker.stop();
+
+    if (!isHidden()) {
+      // time until the label changes from ceil(remaining / 1000) to the next lower second
+      int delay = (session.getRemaining() - 1) % 1000 + 1;
+      ticker.setDuration(Duration.millis(Math.max(1, delay)));
+      ticker.playFromStart();
+      tickDue = System.nanoTime() + Math.max(1, delay) * 1_000_000L;
+    }
+  }
+
+  private boolean isHidden() {
+    return stage.isIconified() || !stage.isShowing();
+  }
+
+  private void visibilityChanged() {
+    if (session.isRunning() && !session.isPaused()) {
+      update();
     } else {
-      remaining -= UPDATE_RATE;
       updateLabel();
     }
   }
 
   private void updateLabel() {
-    remainingLabel.setText(Interval.msToString(remaining + 1000 - UPDATE_RATE));
+    if (isHidden()) {
+      return;
+    }
+
+    // round up, so the label shows 00:01 until the very end of an interval
+    int seconds = (remaining + 999) / 1000;
+    if (seconds != displayed) {
+      displayed = seconds;
+      String text = Interval.msToString(seconds * 1000);
+      if (remainingCanvas != null) {
+        remainingCanvas.setText(text);
+      } else {
+        remainingLabel.setText(text);
+      }
+    }
+
+    updateTotal();
+  }
+
+  /**
+   * Shows the time left until the end of the run and its progress, or the duration of all
+   * intervals while the session is stopped. Both are read from the compiled timeline in constant
+   * time.
+   */
+  private void updateTotal() {
+    if (isHidden()) {
+      return;
+    }
+
+    long total;
+    long left;
+    if (session.isRunning()) {
+      total = session.getTotalDuration();
+      left = session.getTotalRemaining();
+    } else {
+      total = intervals.isEmpty() ? 0 : getTimeline().getTotalDuration();
+      left = total;
+    }
+
+    long seconds = (left + 999) / 1000;
+    if (seconds != displayedTotal) {
+      displayedTotal = seconds;
+      totalLabel.setText(DurationCodec.formatLong(seconds * 1000));
+    }
+    progressBar.setProgress(total > 0 ? 1 - (double) left / total : 0);
+  }
+
+  /**
+   * Returns the compiled intervals, compiling them only if the list has changed since the last
+   * call.
+   *
+   * @return the timeline of the intervals, which must not be empty
+   */
+  private Timeline getTimeline() {
+    if (timeline == null) {
+      timeline = new Timeline(intervals.snapshot());
+    }
+    return timeline;
   }
 
   private void updateIntervals() {
     if (!intervals.isEmpty()) {
       if (current > 0) {
-        intervals.get(current - 1).setState(IntervalState.Previous);
+        intervals.setState(current - 1, IntervalState.Previous);
       }
       if (current > 1) {
-        intervals.get(current - 2).setState(IntervalState.Finished);
+        intervals.setState(current - 2, IntervalState.Finished);
       }
 
-      intervals.get(current).setState(IntervalState.Current);
+      intervals.setState(current, IntervalState.Current);
 
       if (current < intervals.size() - 1) {
-        intervals.get(current + 1).setState(IntervalState.Next);
+        intervals.setState(current + 1, IntervalState.Next);
       }
+    }
+  }
 
-      listView.refresh();
+  /**
+   * Runs the given session event on the FX thread, measuring how long it waited there if the
+   * timing statistics are enabled.
+   *
+   * @param runnable the event handler
+   */
+  private static void runLater(Runnable runnable) {
+    if (TimingStats.ENABLED) {
+      long posted = System.nanoTime();
+      Platform.runLater(() -> {
+        TimingStats.get().recordStall(System.nanoTime() - posted);
+        runnable.run();
+      });
+    } else {
+      Platform.runLater(runnable);
     }
   }
 
-  private void done() {
-    AudioClip clip = new AudioClip(new File("done.wav").toURI().toString());
+  private void runStarted() {
+    if (session.isRunning()) {
+      resetIntervals();
+      // a resumed run starts in the middle of the intervals
+      current = session.getCurrent();
+      for (int i = 0; i < current - 1; i++) {
+        intervals.setState(i, IntervalState.Finished);
+      }
+      updateIntervals();
+      if (current > 0) {
+        listView.scrollTo(Math.max(0, current - 3));
+      }
+      startUi();
+      updateStep();
+      armCues();
+      update();
+    }
+  }
 
-    if (current == intervals.size() - 1) {
-      reset();
-      //clip.setCycleCount(3);
+  private void intervalStarted() {
+    if (session.isRunning()) {
+      // catch up on every interval that ended since the last update
+      int next = session.getCurrent();
+      while (current < next) {
+        current++;
+        updateIntervals();
+      }
 
-      AudioClip clip2 = new AudioClip(new File("timer.wav").toURI().toString());
-      clip2.setCycleCount(4);
-      clip2.play();
+      listView.scrollTo(Math.max(0, current - 3));
+      updateStep();
+      armCues();
+      update();
+    }
+  }
 
-      if (repeatCheckBox.isSelected()) {
-        start();
+  private void runJumped() {
+    if (session.isRunning()) {
+      // only the intervals between the old and the new position change their state
+      int next = session.getCurrent();
+      int first = Math.max(0, Math.min(current, next) - 1);
+      int last = Math.min(intervals.size() - 1, Math.max(current, next) + 1);
+      for (int i = first; i <= last; i++) {
+        intervals.setState(i, i < next - 1 ? IntervalState.Finished : IntervalState.Default);
       }
-    } else {
-      remaining = intervals.get(++current).getDuration();
-      listView.scrollTo(Math.max(0, current - 3));
-      updateLabel();
+      current = next;
       updateIntervals();
+
+      listView.scrollTo(Math.max(0, current - 3));
+      updateStep();
+      armCues();
+      update();
+    }
+  }
+
+  /**
+   * Shows the label of the interval running inside the current repeat group, which the list only
+   * shows collapsed.
+   */
+  private void updateStep() {
+    Interval step = session.getStep();
+    boolean inGroup = step != null && intervals.get(current) instanceof RepeatGroup;
+    stepLabel.setVisible(inGroup);
+    stepLabel.setText(inGroup ? step.getLabel() : null);
+  }
+
+  private void runFinished() {
+    // a repeating session has already started over, see runStarted()
+    if (!session.isRunning()) {
+      reset();
     }
+  }
 
-    clip.play();
+  /**
+   * Arms the cues for the end of the current interval, so they play at its deadline regardless of
+   * how busy this thread is at that moment.
+   */
+  private void armCues() {
+    cues.cancel();
+
+    if (session.isRunning() && !session.isPaused()) {
+      long deadline = session.getDeadline();
+      cues.schedule(AudioCues.Cue.Done, deadline);
+      if (session.isLastStep()) {
+        cues.schedule(AudioCues.Cue.End, deadline);
+      }
+    }
   }
 
   private void startUi() {
     startButton.setDisable(true);
     pauseButton.setDisable(false);
+    previousButton.setDisable(false);
+    nextButton.setDisable(false);
     presetComboBox.setDisable(true);
     renamePresetButton.setDisable(true);
     removePresetButton.setDisable(true);
@@ -293,11 +1082,14 @@ public class Timer {
     listView.getSelectionModel().select(-1);
     newIntervalButton.setDisable(true);
     removeIntervalButton.setDisable(true);
+    updateHistoryButtons();
   }
 
   private void stopUi() {
     startButton.setDisable(false);
     pauseButton.setDisable(true);
+    previousButton.setDisable(true);
+    nextButton.setDisable(true);
     presetComboBox.setDisable(false);
     renamePresetButton.setDisable(false);
     removePresetButton.setDisable(false);
@@ -305,106 +1097,263 @@ public class Timer {
     listView.setFocusTraversable(true);
     newIntervalButton.setDisable(false);
     removeIntervalButton.setDisable(false);
+    updateHistoryButtons();
+  }
+
+  /**
+   * Starts an empty edit history for the intervals that were just loaded.
+   */
+  private void startHistory() {
+    editHistory.clear();
+    editHistory.setEnabled(true);
+  }
+
+  private void undo() {
+    if (canEdit()) {
+      editHistory.undo();
+    }
+  }
+
+  private void redo() {
+    if (canEdit()) {
+      editHistory.redo();
+    }
+  }
+
+  private boolean canEdit() {
+    return !loading && !session.isRunning();
+  }
+
+  private void updateHistoryButtons() {
+    undoButton.setDisable(!canEdit() || !editHistory.canUndo());
+    redoButton.setDisable(!canEdit() || !editHistory.canRedo());
   }
 
-  private void changePreset(int oldIndex, int newIndex) {
-    if (oldIndex > 0 && oldIndex < presets.size() - 1) {
-      savePreset(oldIndex);
+  private void changePreset(String oldName, String newName) {
+    if (updatingPresets) {
+      return;
+    }
+
+    if (isStoredPreset(oldName)) {
+      savePreset(oldName);
     }
 
-    if (newIndex >= 0) {
-      loadPreset(newIndex);
+    if (newName != null) {
+      loadPreset(newName);
     }
   }
 
-  private void savePreset(int i) {
-    if (i <= 0 || i >= presets.size()) {
-      throw new IllegalArgumentException(
-        "Index must be between 0 and the number of presets (excl.)");
+  private void savePreset(String name) {
+    // a preset that is still loading hasn't been changed, saving it would cut it short
+    if (loading) {
+      return;
     }
 
-    String filename = PRESET_DIR + presets.get(i) + PresetFile.EXTENSION;
-    PresetFile.save(new ArrayList<>(intervals), filename);
+    String filename = presetFilename(name);
+    store.save(Paths.get(PRESET_DIR + filename), intervals.snapshot());
   }
 
-  public void saveCurrentPreset() {
-    int currentIndex = presetComboBox.getSelectionModel().getSelectedIndex();
-    if (currentIndex != 0 && currentIndex != presets.size() - 1) {
-      savePreset(currentIndex);
+  /**
+   * Saves everything that needs to outlive the application: the current preset and the catalog.
+   * Blocks until all pending saves are written.
+   */
+  public void close() {
+    if (watcher != null) {
+      watcher.close();
+    }
+    saveCurrentPreset();
+    store.flush();
+    catalog.save();
+
+    // the checkpoint keeps a running session, so it can be resumed on the next launch
+    saveCheckpoint();
+    session.stop();
+    if (checkpoint != null) {
+      checkpoint.close();
+    }
+    if (history != null) {
+      history.close();
+    }
+    if (broadcast != null) {
+      broadcast.close();
     }
   }
 
-  private void loadPreset(int i) {
-    if (i < 0 || i >= presets.size()) {
-      throw new IllegalArgumentException(
-        "Index must be between 1 and the number of presets (excl.)");
+  public void saveCurrentPreset() {
+    String name = presetComboBox.getValue();
+    if (isStoredPreset(name)) {
+      savePreset(name);
     }
+  }
 
+  private void loadPreset(String name) {
+    // the edit history belongs to the preset that was shown so far
+    editHistory.setEnabled(false);
     intervals.clear();
 
-    if (i == 0) {
+    // chunks of a preset that was still loading are dropped from now on
+    loadGeneration++;
+    setLoading(false);
+
+    // presets may bring their own cues, see AudioCues
+    cues.usePreset(isStoredPreset(name) ? PRESET_DIR + name : null);
+
+    if (name.equals(DEFAULT_PRESET)) {
+      List<Interval> defaults = new ArrayList<>();
       for (int j = 1; j <= 3; j++) {
-        String duration = String.format("00:%02d", 5 * j);
-        intervals.add(new Interval(duration, "Interval #" + j));
+        defaults.add(new Interval(5000 * j, "Interval #" + j));
       }
-    } else if (i == presets.size() - 1) {
-      presetComboBox.getSelectionModel().select(0);
+      intervals.addAll(defaults);
+      startHistory();
+    } else if (name.equals(NEW_PRESET)) {
+      presetComboBox.getSelectionModel().select(DEFAULT_PRESET);
 
-      String name = getNewPresetName("");
-      if (!name.equals("")) {
+      String newName = getNewPresetName("");
+      if (!newName.equals("")) {
         // create an empty preset file
-        PresetFile.save(null, PRESET_DIR + name + PresetFile.EXTENSION);
+        PresetFile.save(null, PRESET_DIR + newName + PresetFile.EXTENSION);
+        catalog.update(newName + PresetFile.EXTENSION);
 
-        presets.add(presets.size() - 1, name);
-        presetComboBox.getSelectionModel().select(presets.size() - 2);
+        insertPreset(newName);
+        // the filter was made for the previous presets, it has to show the new one
+        filterPresets(newName);
+        presetComboBox.getSelectionModel().select(newName);
       }
     } else {
-      String filename = PRESET_DIR + presets.get(i) + PresetFile.EXTENSION;
-      try {
-        intervals.addAll(PresetFile.load(filename));
-      } catch (final Exception e) {
-        Alert alert = new Alert(Alert.AlertType.ERROR, e.getMessage());
-        alert.show();
-        intervals.clear();
-      }
+      String filename = PRESET_DIR + presetFilename(name);
+      int generation = loadGeneration;
+      setLoading(true);
+
+      // the list fills in chunk by chunk while the file is being read
+      store.load(Paths.get(filename), LOAD_CHUNK, chunk -> Platform.runLater(() -> {
+        if (generation == loadGeneration) {
+          intervals.addAll(chunk);
+        }
+      })).whenComplete((errors, e) -> Platform.runLater(() -> {
+        if (generation != loadGeneration) {
+          return;
+        }
+        setLoading(false);
+
+        if (e != null) {
+          Alert alert = new Alert(Alert.AlertType.ERROR, e.getMessage());
+          alert.show();
+          intervals.clear();
+          startHistory();
+          resumeState = null;
+          return;
+        }
+        startHistory();
+        if (resumeState != null) {
+          resumeRun();
+        }
+        if (!errors.isEmpty()) {
+          // keep every valid line, but let the user know about the rest
+          Alert alert = new Alert(Alert.AlertType.WARNING, PresetFile.describe(errors));
+          alert.setHeaderText("Some lines of the preset could not be loaded");
+          alert.show();
+        }
+      }));
+    }
+  }
+
+  private void setLoading(boolean loading) {
+    this.loading = loading;
+    startButton.setDisable(loading);
+    newIntervalButton.setDisable(loading);
+    removeIntervalButton.setDisable(loading);
+    listView.setEditable(!loading);
+    updateHistoryButtons();
+
+    if (!loading) {
+      updateTotal();
     }
   }
 
   private void renameCurrentPreset() {
-    int currentIndex = presetComboBox.getSelectionModel().getSelectedIndex();
+    String oldName = presetComboBox.getValue();
 
-    if (currentIndex != 0 && currentIndex != presets.size() - 1) {
-      String newName = getNewPresetName(presetComboBox.getValue());
+    if (isStoredPreset(oldName)) {
+      String newName = getNewPresetName(oldName);
       if (!newName.equals("")) {
-        String oldFilename = PRESET_DIR + presetComboBox.getValue() + PresetFile.EXTENSION;
-        String newFilename = PRESET_DIR + newName + PresetFile.EXTENSION;
+        String oldFilename = presetFilename(oldName);
+        String newFilename = newName + oldFilename.substring(oldFilename.lastIndexOf('.'));
 
-        File oldFile = new File(oldFilename);
-        File newFile = new File(newFilename);
+        File oldFile = new File(PRESET_DIR + oldFilename);
+        File newFile = new File(PRESET_DIR + newFilename);
+        // a queued save of the old file would bring it back next to the renamed one
+        store.flush();
 
         if (!oldFile.renameTo(newFile)) {
           Alert alert = new Alert(Alert.AlertType.ERROR, "Could not rename the current preset");
           alert.show();
         } else {
-          presets.set(currentIndex, newName);
-
-          // need to set this separately, otherwise
-          // it keeps the old value (for some reason)
-          presetComboBox.setValue(newName);
+          catalog.remove(oldFilename);
+          catalog.update(newFilename);
+
+          // the intervals stay as they are, only the name moves to its sorted position
+          updatingPresets = true;
+          removePreset(oldName);
+          insertPreset(newName);
+          filterPresets(newName);
+          presetComboBox.getSelectionModel().select(newName);
+          updatingPresets = false;
         }
       }
     }
   }
 
-  private void removeCurrentPreset() {
-    int toDelete = presetComboBox.getSelectionModel().getSelectedIndex();
+  /**
+   * Imports all presets of a directory or zip archive in the background, then adds the imported
+   * ones to the drop-down list and shows the report.
+   *
+   * @param source the directory or archive
+   */
+  private void importPresets(File source) {
+    importPresetButton.setDisable(true);
+    PresetImporter importer = new PresetImporter(Paths.get(PRESET_DIR));
+
+    CompletableFuture.supplyAsync(() -> importer.importFrom(source.toPath()))
+      .whenComplete((report, e) -> Platform.runLater(() -> {
+        importPresetButton.setDisable(false);
+        if (e != null) {
+          Alert alert = new Alert(Alert.AlertType.ERROR, "Could not read " + source);
+          alert.show();
+          return;
+        }
+
+        updatingPresets = true;
+        for (ImportReport.Entry entry : report.getEntries()) {
+          if (entry.getStatus() == ImportReport.Status.Imported) {
+            catalog.update(entry.getFilename(), entry.getIntervals());
+            insertPreset(presetName(entry.getFilename()));
+          }
+        }
+        updatingPresets = false;
+        filterPresets();
 
-    if (toDelete != 0 && toDelete != presets.size() - 1) {
-      String filename = PRESET_DIR + presetComboBox.getValue() + PresetFile.EXTENSION;
-      File file = new File(filename);
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, report.describe());
+        alert.setHeaderText("Imported presets from " + source.getName());
+        alert.show();
+      }));
+  }
 
-      presetComboBox.getSelectionModel().select(0);
-      presets.remove(toDelete);
+  private void removeCurrentPreset() {
+    String name = presetComboBox.getValue();
+
+    if (isStoredPreset(name)) {
+      String filename = presetFilename(name);
+      File file = new File(PRESET_DIR + filename);
+      catalog.remove(filename);
+
+      // switch without saving, and drop a save that is still queued from an earlier switch, it
+      // would write the file again after it is deleted
+      updatingPresets = true;
+      presetComboBox.getSelectionModel().select(DEFAULT_PRESET);
+      removePreset(name);
+      updatingPresets = false;
+      loadPreset(DEFAULT_PRESET);
+      store.discard(Paths.get(PRESET_DIR + filename));
 
       if (!file.delete()) {
         Alert alert = new Alert(Alert.AlertType.ERROR, "Could not remove the current preset");
@@ -414,10 +1363,14 @@ public class Timer {
   }
 
   private String getNewPresetName(String filler) {
+    return askForText("New preset name", "Please enter a new name", filler);
+  }
+
+  private String askForText(String title, String header, String filler) {
     TextInputDialog dialog = new TextInputDialog(filler);
-    dialog.setTitle("New preset name");
+    dialog.setTitle(title);
     dialog.setGraphic(null);
-    dialog.setHeaderText("Please enter a new name");
+    dialog.setHeaderText(header);
 
     return dialog.showAndWait().orElse("");
   }
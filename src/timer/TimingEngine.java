@@ -0,0 +1,384 @@
+package timer;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * This class keeps track of a running sequence of intervals using absolute deadlines instead of
+ * decrementing a counter on every tick. The end of each interval is computed once from the
+ * cumulative durations, so late or dropped ticks never accumulate into drift - the UI only has to
+ * sample the engine whenever it gets a chance to.
+ * <p>
+ * {@link RepeatGroup Repeat groups} are never expanded. The engine keeps a cursor on the single
+ * interval that is running - the current step - and only looks it up inside the current group when
+ * the previous step has ended. Seeking to any point in time looks it up in the {@link Timeline}.
+ */
+public class TimingEngine {
+  private static final long NANOS_PER_MS = 1_000_000L;
+
+  /**
+   * Receives the steps of a sequence, see {@link #forEachStep(long, long, StepConsumer)}.
+   */
+  public interface StepConsumer {
+    void accept(int index, Interval step, long start);
+  }
+
+  private final LongSupplier clock;
+
+  private Timeline timeline;
+  private long startTime;
+  private long pausedAt;
+  private boolean running;
+  private boolean paused;
+  private int current;
+
+  // the current step, with its start and end in ms relative to the start of the sequence
+  private Timeline.Step step;
+
+  /**
+   * Creates an engine driven by {@link System#nanoTime()}.
+   */
+  public TimingEngine() {
+    this(System::nanoTime);
+  }
+
+  /**
+   * Creates an engine driven by the given clock.
+   *
+   * @param clock a monotonic clock returning nanoseconds
+   */
+  public TimingEngine(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Starts the given intervals now.
+   *
+   * @param intervals the intervals to run
+   *
+   * @throws IllegalArgumentException if there are no intervals
+   */
+  public void start(List<Interval> intervals) {
+    start(new Timeline(intervals), clock.getAsLong());
+  }
+
+  /**
+   * Starts the given intervals at the specified point in time. Passing the end of a previous run
+   * makes a repeated sequence continue without losing the time spent between the two runs.
+   *
+   * @param intervals the intervals to run
+   * @param startTime the start of the first interval in {@link System#nanoTime()} units
+   *
+   * @throws IllegalArgumentException if there are no intervals
+   */
+  public void start(List<Interval> intervals, long startTime) {
+    start(new Timeline(intervals), startTime);
+  }
+
+  /**
+   * Starts the given compiled intervals at the specified point in time.
+   *
+   * @param timeline  the intervals to run
+   * @param startTime the start of the first interval in {@link System#nanoTime()} units
+   */
+  public void start(Timeline timeline, long startTime) {
+    this.timeline = timeline;
+    restart(startTime);
+  }
+
+  /**
+   * Starts the same intervals again at the specified point in time.
+   *
+   * @param startTime the start of the first interval in {@link System#nanoTime()} units
+   *
+   * @throws IllegalStateException if the engine has never been started
+   */
+  public void restart(long startTime) {
+    if (timeline == null) {
+      throw new IllegalStateException("The engine has never been started");
+    }
+
+    this.startTime = startTime;
+    current = 0;
+    running = true;
+    paused = false;
+    step = timeline.stepAt(0, 0);
+  }
+
+  /**
+   * Pauses the engine. All deadlines are frozen until {@link #resume()} is called.
+   */
+  public void pause() {
+    if (running && !paused) {
+      pausedAt = clock.getAsLong();
+      paused = true;
+    }
+  }
+
+  /**
+   * Resumes a paused engine by shifting all deadlines by the time spent paused.
+   */
+  public void resume() {
+    if (running && paused) {
+      startTime += clock.getAsLong() - pausedAt;
+      paused = false;
+    }
+  }
+
+  /**
+   * Moves a running engine to the given point of the sequence, forwards or backwards. A paused
+   * engine stays paused at the new point.
+   *
+   * @param time the time in ms relative to the start of the sequence, clamped to its duration
+   *
+   * @throws IllegalStateException if the engine is not running
+   */
+  public void seek(long time) {
+    if (!running) {
+      throw new IllegalStateException("The engine is not running");
+    }
+
+    long total = timeline.getTotalDuration();
+    time = Math.max(0, Math.min(time, total));
+    startTime = (paused ? pausedAt : clock.getAsLong()) - time * NANOS_PER_MS;
+
+    current = timeline.indexAt(time);
+    if (current < timeline.size()) {
+      step = timeline.stepAt(current, time);
+    } else {
+      // at the very end the last step stays current, with nothing left of it
+      step = timeline.stepAt(current - 1, total - 1);
+    }
+  }
+
+  /**
+   * Moves to the start of the next step, or to the end if the current step is the last one.
+   */
+  public void skipNext() {
+    advance();
+    seek(step.getEnd());
+  }
+
+  /**
+   * Moves back to the start of the current step, or to the start of the previous step if the
+   * current one started less than a second ago.
+   */
+  public void skipPrevious() {
+    advance();
+    long time = elapsed() / NANOS_PER_MS;
+    if (time - step.getStart() < 1000 && step.getStart() > 0) {
+      long previous = step.getStart() - 1;
+      seek(timeline.stepAt(timeline.indexAt(previous), previous).getStart());
+    } else {
+      seek(step.getStart());
+    }
+  }
+
+  /**
+   * Stops the engine.
+   */
+  public void stop() {
+    running = false;
+    paused = false;
+    current = 0;
+    if (timeline != null) {
+      step = timeline.stepAt(0, 0);
+    }
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * Returns the index of the interval that is running at the current time. Inside a repeat group
+   * this is the index of the group. Once the last interval has ended, the returned index is equal
+   * to the number of intervals.
+   *
+   * @return the index of the current interval
+   */
+  public int getCurrent() {
+    advance();
+    return current;
+  }
+
+  /**
+   * Returns the single interval that is running at the current time, i.e. the current interval
+   * itself or the interval running inside the current repeat group. Once the sequence has finished,
+   * this is the last step.
+   *
+   * @return the current step, or null if the engine has never been started
+   */
+  public Interval getStep() {
+    advance();
+    return step != null ? step.getInterval() : null;
+  }
+
+  /**
+   * Returns the absolute start of the current step.
+   *
+   * @return the start of the current step in {@link System#nanoTime()} units
+   */
+  public long getStepStart() {
+    advance();
+    return startTime + step.getStart() * NANOS_PER_MS;
+  }
+
+  /**
+   * Returns whether the current step is the last one of the sequence.
+   *
+   * @return true if the sequence ends with the current step
+   */
+  public boolean isLastStep() {
+    advance();
+    return step.getEnd() == timeline.getTotalDuration();
+  }
+
+  /**
+   * Returns the time left in the current step.
+   *
+   * @return remaining time in ms, or 0 if the sequence has finished
+   */
+  public int getRemaining() {
+    if (getCurrent() >= size()) {
+      return 0;
+    }
+
+    long remaining = step.getEnd() * NANOS_PER_MS - elapsed();
+    return (int) ((remaining + NANOS_PER_MS - 1) / NANOS_PER_MS);
+  }
+
+  /**
+   * Returns the time since the start of the sequence, not counting pauses.
+   *
+   * @return the elapsed time in ms, at most the duration of the sequence
+   */
+  public long getElapsed() {
+    if (!running) {
+      return 0;
+    }
+    return Math.min(elapsed() / NANOS_PER_MS, timeline.getTotalDuration());
+  }
+
+  /**
+   * Returns the time left until the end of the sequence.
+   *
+   * @return remaining time in ms, rounded up like {@link #getRemaining()}
+   */
+  public long getTotalRemaining() {
+    if (!running) {
+      return 0;
+    }
+
+    long remaining = timeline.getTotalDuration() * NANOS_PER_MS - elapsed();
+    return Math.max(0, (remaining + NANOS_PER_MS - 1) / NANOS_PER_MS);
+  }
+
+  /**
+   * Returns the duration of the whole sequence.
+   *
+   * @return the total duration in ms, or 0 if the engine has never been started
+   */
+  public long getTotalDuration() {
+    return timeline != null ? timeline.getTotalDuration() : 0;
+  }
+
+  /**
+   * Returns whether the last interval has ended.
+   *
+   * @return true if all intervals have ended
+   */
+  public boolean isFinished() {
+    return running && getCurrent() >= size();
+  }
+
+  /**
+   * Returns the absolute deadline of the current step.
+   *
+   * @return the end of the current step in {@link System#nanoTime()} units
+   */
+  public long getDeadline() {
+    advance();
+    return startTime + step.getEnd() * NANOS_PER_MS;
+  }
+
+  /**
+   * Returns the absolute deadline of the given interval.
+   *
+   * @param index the index of the interval
+   *
+   * @return the end of the interval in {@link System#nanoTime()} units
+   */
+  public long getDeadline(int index) {
+    return startTime + timeline.getEnd(index) * NANOS_PER_MS;
+  }
+
+  /**
+   * Returns the number of intervals in the sequence.
+   *
+   * @return the number of intervals
+   */
+  public int size() {
+    return timeline != null ? timeline.size() : 0;
+  }
+
+  /**
+   * Returns the absolute end of the whole sequence.
+   *
+   * @return the end of the last interval in {@link System#nanoTime()} units
+   */
+  public long getEndTime() {
+    return startTime + timeline.getTotalDuration() * NANOS_PER_MS;
+  }
+
+  /**
+   * Goes through every step that starts after the step running at the given point in time, up to
+   * another point in time, e.g. to report the steps that passed while a thread was stalled.
+   *
+   * @param after    a point in time in {@link System#nanoTime()} units, within the sequence
+   * @param until    the last point in time a step may start at
+   * @param consumer called with the index of the interval, which is that of the group for a step
+   *                 inside a repeat group, the step and its start in {@link System#nanoTime()}
+   *                 units
+   */
+  public void forEachStep(long after, long until, StepConsumer consumer) {
+    long offset = Math.max(0, (after - startTime) / NANOS_PER_MS);
+    long total = timeline.getTotalDuration();
+    if (offset >= total) {
+      return;
+    }
+
+    long time = timeline.stepAt(timeline.indexAt(offset), offset).getEnd();
+    while (time < total && startTime + time * NANOS_PER_MS - until <= 0) {
+      int index = timeline.indexAt(time);
+      Timeline.Step next = timeline.stepAt(index, time);
+      consumer.accept(index, next.getInterval(), startTime + time * NANOS_PER_MS);
+      time = next.getEnd();
+    }
+  }
+
+  private void advance() {
+    long elapsed = elapsed();
+    if (step == null || current >= timeline.size() || elapsed < step.getEnd() * NANOS_PER_MS) {
+      return;
+    }
+
+    while (current < timeline.size() && elapsed >= timeline.getEnd(current) * NANOS_PER_MS) {
+      current++;
+    }
+    if (current < timeline.size()) {
+      step = timeline.stepAt(current, elapsed / NANOS_PER_MS);
+    }
+  }
+
+  private long elapsed() {
+    if (!running) {
+      return 0;
+    }
+    return (paused ? pausedAt : clock.getAsLong()) - startTime;
+  }
+}
@@ -0,0 +1,161 @@
+package timer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how accurately the timing path keeps time:
+ * <ul>
+ * <li>transition latency - how late the scheduler wakes a session after a deadline</li>
+ * <li>tick jitter - how late the UI updates its labels after the moment it asked for</li>
+ * <li>stall - how long a session event waits for the FX thread</li>
+ * </ul>
+ * The statistics are off by default and enabled with {@code -Djtimer.stats=true}. They are then
+ * published as the MBean {@value #OBJECT_NAME}, and {@code -Djtimer.stats.log=<seconds>}
+ * additionally prints them to the standard error periodically. Callers check {@link #ENABLED}
+ * before recording anything, which the JIT folds away when the statistics are off.
+ */
+public class TimingStats implements TimingStatsMBean {
+  public static final String OBJECT_NAME = "timer:type=TimingStats";
+  public static final boolean ENABLED = Boolean.getBoolean("jtimer.stats");
+
+  private static final TimingStats instance = ENABLED ? create() : null;
+
+  private final LatencyHistogram transitions;
+  private final LatencyHistogram ticks;
+  private final LatencyHistogram stalls;
+
+  private TimingStats() {
+    transitions = new LatencyHistogram();
+    ticks = new LatencyHistogram();
+    stalls = new LatencyHistogram();
+  }
+
+  /**
+   * Returns the statistics of the application.
+   *
+   * @return the statistics, or null if they are not {@link #ENABLED}
+   */
+  public static TimingStats get() {
+    return instance;
+  }
+
+  private static TimingStats create() {
+    TimingStats stats = new TimingStats();
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+        .registerMBean(stats, new ObjectName(OBJECT_NAME));
+    } catch (JMException e) {
+      // e.g. registered twice, the statistics are still logged and readable through get()
+    }
+
+    long period = Long.getLong("jtimer.stats.log", 0) * 1000;
+    if (period > 0) {
+      Thread thread = new Thread(() -> {
+        try {
+          while (true) {
+            Thread.sleep(period);
+            System.err.println(stats);
+          }
+        } catch (InterruptedException e) {
+          // the application is exiting
+        }
+      }, "timing-stats");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return stats;
+  }
+
+  /**
+   * Records the time between a deadline and the moment its session was woken up.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void recordTransition(long nanos) {
+    transitions.record(nanos);
+  }
+
+  /**
+   * Records the time between the moment an update was due and the moment it ran.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void recordTick(long nanos) {
+    ticks.record(nanos);
+  }
+
+  /**
+   * Records the time a task waited for the FX thread.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void recordStall(long nanos) {
+    stalls.record(nanos);
+  }
+
+  public long getTransitionCount() {
+    return transitions.getCount();
+  }
+
+  public long getTransitionLatency50() {
+    return transitions.getPercentile(0.5);
+  }
+
+  public long getTransitionLatency99() {
+    return transitions.getPercentile(0.99);
+  }
+
+  public long getTransitionLatencyMax() {
+    return transitions.getMax();
+  }
+
+  public long getTickCount() {
+    return ticks.getCount();
+  }
+
+  public long getTickJitter50() {
+    return ticks.getPercentile(0.5);
+  }
+
+  public long getTickJitter99() {
+    return ticks.getPercentile(0.99);
+  }
+
+  public long getTickJitterMax() {
+    return ticks.getMax();
+  }
+
+  public long getStallCount() {
+    return stalls.getCount();
+  }
+
+  public long getStall50() {
+    return stalls.getPercentile(0.5);
+  }
+
+  public long getStall99() {
+    return stalls.getPercentile(0.99);
+  }
+
+  public long getStallMax() {
+    return stalls.getMax();
+  }
+
+  public void reset() {
+    transitions.reset();
+    ticks.reset();
+    stalls.reset();
+  }
+
+  public String toString() {
+    return "timing [us] " + describe("transition", transitions) + ", " + describe("tick", ticks)
+      + ", " + describe("stall", stalls);
+  }
+
+  private static String describe(String name, LatencyHistogram histogram) {
+    return name + " n=" + histogram.getCount() + " p50=" + histogram.getPercentile(0.5) + " p99="
+      + histogram.getPercentile(0.99) + " max=" + histogram.getMax();
+  }
+}
@@ -0,0 +1,35 @@
+package timer;
+
+/**
+ * The management interface of {@link TimingStats}. All latencies are in microseconds.
+ */
+public interface TimingStatsMBean {
+  long getTransitionCount();
+
+  long getTransitionLatency50();
+
+  long getTransitionLatency99();
+
+  long getTransitionLatencyMax();
+
+  long getTickCount();
+
+  long getTickJitter50();
+
+  long getTickJitter99();
+
+  long getTickJitterMax();
+
+  long getStallCount();
+
+  long getStall50();
+
+  long getStall99();
+
+  long getStallMax();
+
+  /**
+   * Removes all recorded values.
+   */
+  void reset();
+}
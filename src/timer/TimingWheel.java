@@ -0,0 +1,172 @@
+package timer;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel. Time is split into ticks of a fixed length and every level of the
+ * wheel has 64 slots, each covering 64 times more ticks than a slot of the level below. Scheduling
+ * a timeout is O(1), and an entry is moved down at most once per level as its deadline approaches,
+ * so expiring timeouts is O(1) amortized no matter how many of them are pending.
+ * <p>
+ * This class is not thread-safe, it is meant to be driven by a single thread.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class TimingWheel<T> {
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final int LEVELS = 4;
+  private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+  private static class Node<T> {
+    final long expiry;
+    final T item;
+    Node<T> next;
+
+    Node(long expiry, T item) {
+      this.expiry = expiry;
+      this.item = item;
+    }
+  }
+
+  private final long tickNanos;
+  private final long origin;
+  private final Node<T>[][] slots;
+  private long tick;
+  private int size;
+
+  /**
+   * Creates a timing wheel.
+   *
+   * @param tickNanos the length of one tick in nanoseconds
+   * @param origin    the point in time of the first tick in {@link System#nanoTime()} units
+   */
+  public TimingWheel(long tickNanos, long origin) {
+    if (tickNanos <= 0) {
+      throw new IllegalArgumentException("Tick length must be positive");
+    }
+
+    this.tickNanos = tickNanos;
+    this.origin = origin;
+    this.slots = newSlots();
+    this.tick = 0;
+    this.size = 0;
+  }
+
+  // generic arrays can't be created, the wheel only ever stores nodes of T in them
+  @SuppressWarnings("unchecked")
+  private static <T> Node<T>[][] newSlots() {
+    return (Node<T>[][]) new Node<?>[LEVELS][SLOTS];
+  }
+
+  /**
+   * Schedules an item to expire at the given point in time. Items whose deadline has already
+   * passed expire on the next tick.
+   *
+   * @param deadline the deadline in {@link System#nanoTime()} units
+   * @param item     the item to expire
+   */
+  public void schedule(long deadline, T item) {
+    // round up, so items never expire before their deadline
+    long expiry = Math.floorDiv(deadline - origin + tickNanos - 1, tickNanos);
+    insert(new Node<>(Math.max(expiry, tick + 1), item));
+    size++;
+  }
+
+  /**
+   * Advances the wheel to the given point in time and passes every expired item to the consumer.
+   *
+   * @param now     the current time in {@link System#nanoTime()} units
+   * @param expired the consumer of expired items
+   */
+  public void advance(long now, Consumer<T> expired) {
+    long target = Math.floorDiv(now - origin, tickNanos);
+
+    if (size == 0) {
+      tick = Math.max(tick, target);
+      return;
+    }
+
+    while (tick < target) {
+      tick++;
+
+      // move entries of the higher levels down, highest level first
+      for (int level = LEVELS - 1; level > 0; level--) {
+        long mask = (1L << (SLOT_BITS * level)) - 1;
+        if ((tick & mask) == 0) {
+          cascade(level, (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+      }
+
+      int index = (int) (tick & SLOT_MASK);
+      Node<T> node = slots[0][index];
+      slots[0][index] = null;
+
+      while (node != null) {
+        Node<T> next = node.next;
+        if (node.expiry <= tick) {
+          size--;
+          expired.accept(node.item);
+        } else {
+          // deadlines beyond the span of the wheel come around more than once
+          insert(node);
+        }
+        node = next;
+      }
+
+      if (size == 0) {
+        tick = target;
+      }
+    }
+  }
+
+  /**
+   * Returns a point in time before which nothing can expire. The driving thread can safely sleep
+   * until then.
+   *
+   * @return the next point in time worth advancing to in {@link System#nanoTime()} units
+   */
+  public long nextWakeup() {
+    long boundary = (tick | SLOT_MASK) + 1;
+    for (long t = tick + 1; t < boundary; t++) {
+      if (slots[0][(int) (t & SLOT_MASK)] != null) {
+        return origin + t * tickNanos;
+      }
+    }
+    return origin + boundary * tickNanos;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void cascade(int level, int index) {
+    Node<T> node = slots[level][index];
+    slots[level][index] = null;
+
+    while (node != null) {
+      Node<T> next = node.next;
+      insert(node);
+      node = next;
+    }
+  }
+
+  private void insert(Node<T> node) {
+    long expiry = Math.min(node.expiry, tick + SPAN - 1);
+    long delta = expiry - tick;
+
+    int level = 0;
+    while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+
+    int index = (int) ((expiry >>> (SLOT_BITS * level)) & SLOT_MASK);
+    node.next = slots[level][index];
+    slots[level][index] = node;
+  }
+}
@@ -0,0 +1,133 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryPresetFileTest {
+  // the header of a file with one interval of 10 s
+  private static final byte[] HEADER = {'J', 'T', 'F', 'B', 2, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 39,
+    16};
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void loadsWhatWasSaved() throws IOException {
+    List<Interval> intervals = List.of(new Interval(5000, "Warm up"),
+      new RepeatGroup(3, "Sets", List.of(new Interval(40000, "Work"), new Interval(20000, "Rest"))),
+      new Interval(5000, "Warm up"));
+
+    List<Interval> loaded = new ArrayList<>();
+    List<PresetError> errors = BinaryPresetFile.load(ByteBuffer.wrap(save(intervals)),
+      loaded::add);
+
+    // groups are only equal to themselves, their children are compared instead
+    assertTrue(errors.isEmpty());
+    assertEquals(intervals.toString(), loaded.toString());
+    assertEquals(((RepeatGroup) intervals.get(1)).getChildren(),
+      ((RepeatGroup) loaded.get(1)).getChildren());
+  }
+
+  @Test
+  void readsTheSummaryFromTheHeader() throws IOException {
+    Path path = dir.resolve("a.timerb");
+    Files.write(path, save(List.of(new Interval(5000, "a"), new Interval(7000, "b"))));
+
+    PresetSummary summary = BinaryPresetFile.readSummary(path);
+
+    assertEquals(2, summary.getCount());
+    assertEquals(12000, summary.getTotalDuration());
+    assertEquals(List.of("a", "b"), summary.getLabels());
+  }
+
+  @Test
+  void reportsANegativeLabel() {
+    // a label id of -1, encoded as a five byte varint
+    assertError("Invalid number", bytes(HEADER, 1, 1, 'a', 0x90, 0x4E, 0xFF, 0xFF, 0xFF, 0xFF,
+      0x0F));
+  }
+
+  @Test
+  void reportsALabelOutOfTheTable() {
+    assertError("Invalid label", bytes(HEADER, 1, 1, 'a', 0x90, 0x4E, 1));
+  }
+
+  @Test
+  void reportsAnOverlongVarint() {
+    assertError("Invalid number", bytes(HEADER, 1, 1, 'a', 0x90, 0x4E, 0x80, 0x80, 0x80, 0x80,
+      0x80, 0x01));
+  }
+
+  @Test
+  void rejectsALabelCountLargerThanTheFile() {
+    // 2^31 - 1 labels must not be allocated
+    assertError("Invalid number of labels", bytes(HEADER, 0xFF, 0xFF, 0xFF, 0xFF, 0x07));
+  }
+
+  @Test
+  void rejectsALabelLengthLargerThanTheFile() {
+    assertError("Invalid label", bytes(HEADER, 1, 0xFF, 0xFF, 0xFF, 0xFF, 0x07, 'a'));
+  }
+
+  @Test
+  void rejectsAGroupLargerThanTheFile() {
+    assertError("Invalid repeat group", bytes(HEADER, 1, 1, 'a', 0, 2, 0, 0xFF, 0xFF, 0xFF, 0xFF,
+      0x07));
+  }
+
+  @Test
+  void reportsATruncatedFile() {
+    assertError("Unexpected end of file", bytes(HEADER, 1, 1, 'a', 0x90));
+  }
+
+  @Test
+  void reportsANegativeIntervalCount() {
+    byte[] content = bytes(HEADER, 0);
+    content[5] = (byte) 0xFF;
+    assertError("Invalid number of intervals", content);
+  }
+
+  @Test
+  void rejectsTheSummaryOfACorruptFile() throws IOException {
+    Path path = dir.resolve("a.timerb");
+    Files.write(path, bytes(HEADER, 0xFF, 0xFF, 0xFF, 0xFF, 0x07));
+
+    assertThrows(IllegalArgumentException.class, () -> BinaryPresetFile.readSummary(path));
+  }
+
+  private static void assertError(String message, byte[] content) {
+    List<Interval> loaded = new ArrayList<>();
+    List<PresetError> errors = BinaryPresetFile.load(ByteBuffer.wrap(content), loaded::add);
+
+    assertEquals(1, errors.size());
+    assertEquals(message, errors.get(0).getMessage());
+    assertTrue(loaded.isEmpty());
+  }
+
+  private static byte[] save(List<Interval> intervals) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryPresetFile.save(intervals, out);
+    return out.toByteArray();
+  }
+
+  private static byte[] bytes(byte[] header, int... rest) {
+    byte[] bytes = new byte[header.length + rest.length];
+    System.arraycopy(header, 0, bytes, 0, header.length);
+    for (int i = 0; i < rest.length; i++) {
+      bytes[header.length + i] = (byte) rest[i];
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,96 @@
+package timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BroadcastServerTest {
+  private BroadcastServer server;
+  private BroadcastClient client;
+  private BlockingQueue<BroadcastState> received;
+
+  @BeforeEach
+  void setUp() throws InterruptedException {
+    server = new BroadcastServer(new InetSocketAddress("127.0.0.1", 0),
+      BroadcastServer.DEFAULT_TICK);
+    received = new LinkedBlockingQueue<>();
+    client = new BroadcastClient("127.0.0.1", server.getPort(),
+      (client, state) -> received.add(state));
+
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (server.getClientCount() == 0 && System.nanoTime() < end) {
+      Thread.sleep(10);
+    }
+    // a new client is sent the current snapshot right away
+    assertEquals(BroadcastState.STOPPED.getLabel(), received.poll(5, TimeUnit.SECONDS).getLabel());
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  void sendsPublishedStatesToTheClients() throws InterruptedException {
+    assertEquals(1, server.getClientCount());
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    server.publish(new BroadcastState(true, false, 2, deadline, 5000, "Work"));
+
+    BroadcastState state = received.poll(5, TimeUnit.SECONDS);
+    assertEquals("Work", state.getLabel());
+    assertEquals(2, state.getIndex());
+    assertEquals(deadline, state.getDeadline());
+  }
+
+  @Test
+  void sendsOnlyTheLatestStateOfATick() throws InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      server.publish(new BroadcastState(true, false, i, 0, 0, "State " + i));
+    }
+
+    BroadcastState state;
+    do {
+      state = received.poll(5, TimeUnit.SECONDS);
+    } while (state != null && state.getIndex() != 99);
+    assertEquals("State 99", state.getLabel());
+    assertTrue(received.isEmpty());
+  }
+
+  @Test
+  void estimatesTheOffsetOfTheServerClock() throws InterruptedException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!client.isSynchronized() && System.nanoTime() < end) {
+      Thread.sleep(10);
+    }
+
+    // both ends share the clock, so the offset is within the round trip
+    assertTrue(client.isSynchronized());
+    assertTrue(Math.abs(client.getOffset()) <= client.getRoundTrip());
+  }
+
+  @Test
+  void cutsLongLabelsAtACharacter() {
+    StringBuilder label = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      label.append('\u00e4');
+    }
+    ByteBuffer frame = new BroadcastState(true, true, 1, 2, 3, label.toString()).encode();
+    frame.getShort();
+    frame.get();
+
+    BroadcastState state = BroadcastState.decode(frame);
+    assertTrue(state.isPaused());
+    assertTrue(label.toString().startsWith(state.getLabel()));
+    assertTrue(state.getLabel().length() > 0);
+  }
+}
@@ -0,0 +1,60 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CuePlayerTest {
+  private static final class RecordingPlayer extends CuePlayer<String> {
+    private final List<String> released = new CopyOnWriteArrayList<>();
+    private final CountDownLatch played;
+
+    private RecordingPlayer(int plays) {
+      super(0);
+      played = new CountDownLatch(plays);
+      preload();
+    }
+
+    protected String decode(String filename, int cycleCount) {
+      return filename;
+    }
+
+    protected void release(String sound) {
+      released.add(sound);
+    }
+
+    protected void playSound(String sound) {
+      played.countDown();
+    }
+  }
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void releasesTheSoundsEvictedFromTheCache() throws IOException, InterruptedException {
+    // the two default cues and 20 of the presets fill the cache of 16 sounds
+    RecordingPlayer player = new RecordingPlayer(20);
+    for (int i = 0; i < 20; i++) {
+      Path preset = dir.resolve("preset" + i);
+      Files.createFile(dir.resolve("preset" + i + ".done.wav"));
+      player.usePreset(preset.toString());
+      player.play(CuePlayer.Cue.Done);
+    }
+    assertTrue(player.played.await(5, TimeUnit.SECONDS));
+
+    assertEquals(List.of("done.wav", "timer.wav", dir.resolve("preset0.done.wav").toString(),
+      dir.resolve("preset1.done.wav").toString(), dir.resolve("preset2.done.wav").toString(),
+      dir.resolve("preset3.done.wav").toString()), player.released);
+  }
+}
@@ -0,0 +1,48 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportReportTest {
+  @Test
+  void describesAtMostTenProblems() {
+    List<ImportReport.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      entries.add(failed("file" + i + ".timer"));
+    }
+
+    String description = new ImportReport(entries).describe();
+
+    assertTrue(description.startsWith("0 imported, 0 duplicates, 0 invalid, 12 failed\n"));
+    assertTrue(description.contains("file9.timer"));
+    assertFalse(description.contains("file10.timer"));
+    assertTrue(description.endsWith("\n... and 2 more"));
+  }
+
+  @Test
+  void endsWithoutARemainderAfterExactlyTenProblems() {
+    List<ImportReport.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(failed("file" + i + ".timer"));
+    }
+    entries.add(new ImportReport.Entry("z.timer", ImportReport.Status.Imported, "z.timer",
+      Collections.emptyList(), Collections.emptyList()));
+
+    String description = new ImportReport(entries).describe();
+
+    assertEquals(11, description.split("\n").length);
+    assertTrue(description.endsWith("file9.timer: could not be imported"));
+  }
+
+  private static ImportReport.Entry failed(String source) {
+    return new ImportReport.Entry(source, ImportReport.Status.Failed, null,
+      Collections.emptyList(), null);
+  }
+}
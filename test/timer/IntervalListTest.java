@@ -0,0 +1,77 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalListTest {
+  @Test
+  void removesMovesAndDuplicatesBlocks() {
+    IntervalList list = list("a", "b", "c", "d", "e");
+
+    list.removeIndices(3, 1, 3);
+    assertEquals(labels("a", "c", "e"), list);
+
+    list.moveBlock(0, 2, 1);
+    assertEquals(labels("e", "a", "c"), list);
+
+    list.duplicateBlock(1, 3);
+    assertEquals(labels("e", "a", "c", "a", "c"), list);
+  }
+
+  @Test
+  void compactsTheLabelsOfRenamedIntervals() {
+    IntervalList list = list("a", "b", "c", "d");
+    for (int i = 0; i < 1000; i++) {
+      list.setLabels(new int[] {1, 3}, "Label " + i);
+    }
+
+    assertTrue(list.getPoolSize() <= 2 * list.size() + 17, "pool size " + list.getPoolSize());
+    assertEquals(labels("a", "Label 999", "c", "Label 999"), list);
+  }
+
+  @Test
+  void compactsTheLabelsOfRemovedIntervals() {
+    IntervalList list = list("kept");
+    for (int i = 0; i < 1000; i++) {
+      list.add(new Interval(1000, "Label " + i));
+      list.remove(1);
+    }
+
+    assertTrue(list.getPoolSize() <= 2 * list.size() + 17, "pool size " + list.getPoolSize());
+    assertEquals(labels("kept"), list);
+  }
+
+  @Test
+  void keepsGroupsWhenCompacting() {
+    RepeatGroup group = new RepeatGroup(2, "Sets", List.of(new Interval(1000, "Work")));
+    IntervalList list = list("a");
+    list.add(group);
+    for (int i = 0; i < 100; i++) {
+      list.setLabels(new int[] {0}, "Label " + i);
+    }
+
+    assertEquals(new Interval(1000, "Label 99"), list.get(0));
+    assertSame(group, list.get(1));
+    assertEquals(2, list.snapshot().size());
+  }
+
+  private static IntervalList list(String... labels) {
+    IntervalList list = new IntervalList();
+    list.addAll(labels(labels));
+    return list;
+  }
+
+  private static List<Interval> labels(String... labels) {
+    List<Interval> intervals = new ArrayList<>();
+    for (String label : labels) {
+      intervals.add(new Interval(1000, label));
+    }
+    return intervals;
+  }
+}
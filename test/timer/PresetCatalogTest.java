@@ -0,0 +1,109 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresetCatalogTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  void summarizesThePresetsOfTheDirectory() throws IOException {
+    Files.writeString(dir.resolve("legs.timer"), "00:30 Squats\n00:30 Lunges\n");
+    PresetFile.save(List.of(new Interval(60000, "Plank")), dir.resolve("core.timerb").toString());
+    Files.writeString(dir.resolve("notes.txt"), "not a preset");
+
+    PresetCatalog catalog = new PresetCatalog(dir);
+    catalog.refresh();
+
+    assertEquals(List.of("core", "legs"), catalog.getNames());
+    PresetSummary summary = catalog.find("legs").getSummary();
+    assertEquals(2, summary.getCount());
+    assertEquals(60000, summary.getTotalDuration());
+    assertEquals(Set.of("core.timerb"), catalog.getIndex().search("plan"));
+    assertEquals(Set.of("legs.timer"), catalog.getIndex().search("lunges 1-2"));
+  }
+
+  @Test
+  void reusesTheIndexForUnchangedFiles() throws IOException {
+    Path path = dir.resolve("a.timer");
+    Files.writeString(path, "00:30 Squats\n");
+    new PresetCatalog(dir).refresh();
+
+    // same size and modification time, so the file isn't read again
+    FileTime modified = Files.getLastModifiedTime(path);
+    Files.writeString(path, "00:30 Lunges\n");
+    Files.setLastModifiedTime(path, modified);
+    PresetCatalog catalog = new PresetCatalog(dir);
+    catalog.refresh();
+
+    assertEquals(List.of("Squats"), catalog.get("a.timer").getSummary().getLabels());
+    assertFalse(catalog.isCurrent("b.timer"));
+    assertTrue(catalog.isCurrent("a.timer"));
+  }
+
+  @Test
+  void dropsTheEntriesOfDeletedFiles() throws IOException {
+    Files.writeString(dir.resolve("a.timer"), "00:30 Squats\n");
+    Files.writeString(dir.resolve("b.timer"), "00:30 Lunges\n");
+    PresetCatalog catalog = new PresetCatalog(dir);
+    catalog.refresh();
+
+    Files.delete(dir.resolve("b.timer"));
+    catalog.refresh();
+
+    assertEquals(List.of("a"), catalog.getNames());
+    assertEquals(Set.of(), catalog.getIndex().search("lunges"));
+  }
+
+  @Test
+  void prefersTheBinaryFileOfAPreset() throws IOException {
+    Files.writeString(dir.resolve("a.timer"), "00:30 Squats\n");
+    PresetFile.save(List.of(new Interval(60000, "Plank")), dir.resolve("a.timerb").toString());
+    PresetCatalog catalog = new PresetCatalog(dir);
+    catalog.refresh();
+
+    assertEquals(List.of("a"), catalog.getNames());
+    assertEquals("a.timerb", catalog.find("a").getFilename());
+  }
+
+  @Test
+  void keepsAnEntryWithoutSummaryForACorruptPreset() throws IOException {
+    Files.write(dir.resolve("bad.timerb"), new byte[] {'J', 'T', 'F', 'B', 2, 0, 0, 0, 1, 0, 0,
+      0, 0, 0, 0, 39, 16, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+    PresetCatalog catalog = new PresetCatalog(dir);
+    catalog.refresh();
+
+    assertNotNull(catalog.get("bad.timerb"));
+    assertNull(catalog.get("bad.timerb").getSummary());
+  }
+
+  @Test
+  void rebuildsABrokenIndex() throws IOException {
+    Files.writeString(dir.resolve("a.timer"), "00:30 Squats\n");
+    new PresetCatalog(dir).refresh();
+    Path index = dir.resolve(PresetCatalog.INDEX_FILE);
+    byte[] content = Files.readAllBytes(index);
+    Files.write(index, Arrays.copyOf(content, content.length - 3));
+
+    PresetCatalog catalog = new PresetCatalog(dir);
+    catalog.refresh();
+
+    assertEquals(List.of("Squats"), catalog.get("a.timer").getSummary().getLabels());
+    assertEquals(content.length, Files.size(index));
+  }
+}
@@ -0,0 +1,130 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresetFileTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  void loadsIntervalsAndGroups() {
+    List<Interval> intervals = new ArrayList<>();
+    List<PresetError> errors = load("00:05 Warm up\r\nrepeat 3 Sets\n  00:40 Work\n\t00:20 Rest\n"
+      + "end\n00:05 Cool down", intervals);
+
+    assertTrue(errors.isEmpty());
+    assertEquals(3, intervals.size());
+    assertEquals(new Interval(5000, "Warm up"), intervals.get(0));
+    RepeatGroup group = (RepeatGroup) intervals.get(1);
+    assertEquals(3, group.getCount());
+    assertEquals("Sets", group.getLabel());
+    assertEquals(List.of(new Interval(40000, "Work"), new Interval(20000, "Rest")),
+      group.getChildren());
+  }
+
+  @Test
+  void reportsInvalidLinesAndKeepsTheValidOnes() {
+    List<Interval> intervals = new ArrayList<>();
+    List<PresetError> errors = load("00:05 a\n0:05 b\n00:05b\n00:00 c\n00:07 d\n", intervals);
+
+    assertEquals(List.of(new Interval(5000, "a"), new Interval(7000, "d")), intervals);
+    assertEquals(3, errors.size());
+    assertError(errors.get(0), 2, "Expected mm:ss");
+    assertError(errors.get(1), 3, "Expected a space after the duration");
+    assertEquals(6, errors.get(1).getColumn());
+    assertError(errors.get(2), 4, "Duration must be between 00:01-59:59");
+  }
+
+  @Test
+  void reportsInvalidGroups() {
+    List<Interval> intervals = new ArrayList<>();
+    List<PresetError> errors = load("end\nrepeat 0\n00:05 a\nend\nrepeat 2\nend\nrepeat 2\n"
+      + "00:05 b\n", intervals);
+
+    assertTrue(intervals.isEmpty());
+    assertEquals(4, errors.size());
+    assertError(errors.get(0), 1, "Unexpected end of a repeat group");
+    assertError(errors.get(1), 2, "Expected a repeat count between 1-" + RepeatGroup.MAX_COUNT);
+    assertError(errors.get(2), 5, "Empty repeat group");
+    assertError(errors.get(3), 7, "Missing end of the repeat group");
+  }
+
+  @Test
+  void limitsTheDepthOfGroups() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i <= RepeatGroup.MAX_DEPTH; i++) {
+      text.append("repeat 2\n");
+    }
+    text.append("00:05 a\n");
+    for (int i = 0; i <= RepeatGroup.MAX_DEPTH; i++) {
+      text.append("end\n");
+    }
+
+    List<Interval> intervals = new ArrayList<>();
+    List<PresetError> errors = load(text.toString(), intervals);
+
+    // the groups around the rejected one are left empty and reported as well
+    assertTrue(intervals.isEmpty());
+    assertError(errors.get(errors.size() - 1), RepeatGroup.MAX_DEPTH + 1,
+      "Repeat groups must not be nested deeper than " + RepeatGroup.MAX_DEPTH);
+  }
+
+  @Test
+  void reportsInvalidUtf8() {
+    byte[] content = {'0', '0', ':', '0', '5', ' ', 'a', (byte) 0xC3, '\n', '0', '0', ':', '0',
+      '5', ' ', 'b', '\n'};
+    List<Interval> intervals = new ArrayList<>();
+
+    List<PresetError> errors = PresetFile.load(content, intervals::add);
+
+    assertEquals(1, errors.size());
+    assertError(errors.get(0), 1, "Invalid UTF-8");
+  }
+
+  @Test
+  void streamsFilesLargerThanTheBuffer() throws IOException {
+    List<Interval> saved = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      saved.add(new Interval(1000 + i % 60 * 1000, "Interval \u00e4\u20ac " + i));
+    }
+    Path path = dir.resolve("large.timer");
+    PresetFile.save(saved, path.toString());
+
+    List<Interval> loaded = new ArrayList<>();
+    assertTrue(PresetFile.load(path, loaded::add).isEmpty());
+    assertEquals(saved, loaded);
+  }
+
+  @Test
+  void keepsThePermissionsOfASavedFile() throws IOException {
+    Path path = dir.resolve("shared.timer");
+    PresetFile.save(List.of(new Interval(5000, "a")), path.toString());
+    Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-rw-r--"));
+
+    PresetFile.save(List.of(new Interval(7000, "b")), path.toString());
+
+    assertEquals("rw-rw-r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(path)));
+    assertEquals(List.of(new Interval(7000, "b")), PresetFile.load(path.toString()));
+  }
+
+  private static List<PresetError> load(String text, List<Interval> intervals) {
+    return PresetFile.load(text.getBytes(StandardCharsets.UTF_8), intervals::add);
+  }
+
+  private static void assertError(PresetError error, int line, String message) {
+    assertEquals(line, error.getLine());
+    assertEquals(message, error.getMessage());
+  }
+}
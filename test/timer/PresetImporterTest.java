@@ -0,0 +1,53 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PresetImporterTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  void importsTheValidFilesOfAMixedFolder() throws IOException {
+    Path source = Files.createDirectory(dir.resolve("source"));
+    Path target = Files.createDirectory(dir.resolve("presets"));
+    Files.writeString(source.resolve("good.timer"), "00:10 Work\n00:05 Rest\n");
+    // a label id of -1, encoded as a five byte varint
+    Files.write(source.resolve("bad.timerb"), new byte[] {'J', 'T', 'F', 'B', 2, 0, 0, 0, 1, 0, 0,
+      0, 0, 0, 0, 39, 16, 1, 1, 'a', (byte) 0x90, 0x4E, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+      (byte) 0xFF, 0x0F});
+    Files.writeString(source.resolve("empty.timer"), "");
+
+    ImportReport report = new PresetImporter(target).importFrom(source);
+
+    assertEquals(1, report.getCount(ImportReport.Status.Imported));
+    assertEquals(2, report.getCount(ImportReport.Status.Invalid));
+    try (Stream<Path> files = Files.list(target)) {
+      assertEquals(List.of(target.resolve("good.timer")), files.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void skipsDuplicatesOfStoredPresets() throws IOException {
+    Path source = Files.createDirectory(dir.resolve("source"));
+    Path target = Files.createDirectory(dir.resolve("presets"));
+    Files.writeString(target.resolve("stored.timer"), "00:10 Work\n");
+    Files.writeString(source.resolve("copy.timer"), "00:10 Work\n");
+    Files.writeString(source.resolve("stored.timer"), "00:20 Work\n");
+
+    ImportReport report = new PresetImporter(target).importFrom(source);
+
+    assertEquals(ImportReport.Status.Duplicate, report.getEntries().get(0).getStatus());
+    assertEquals("stored.timer", report.getEntries().get(0).getFilename());
+    assertEquals("stored (2).timer", report.getEntries().get(1).getFilename());
+  }
+}
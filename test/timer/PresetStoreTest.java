@@ -0,0 +1,154 @@
+package timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresetStoreTest {
+  private static final List<Interval> FIRST = List.of(new Interval(10000, "First"));
+  private static final List<Interval> SECOND = List.of(new Interval(20000, "Second"));
+
+  @TempDir
+  Path dir;
+
+  private PresetStore store;
+  private List<Path> saved;
+  // holds the background thread inside the write of the blocking preset until it is released
+  private CountDownLatch release;
+  private CountDownLatch blocked;
+  private Path blocking;
+
+  @BeforeEach
+  void setUp() {
+    store = new PresetStore();
+    saved = new CopyOnWriteArrayList<>();
+    release = new CountDownLatch(1);
+    blocked = new CountDownLatch(1);
+    blocking = dir.resolve("blocking.timer");
+    store.setOnSaved((path, intervals) -> {
+      saved.add(path);
+      if (path.equals(blocking)) {
+        blocked.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    store.flush();
+  }
+
+  @Test
+  void writesOnlyTheLatestOfRepeatedSaves() throws Exception {
+    Path path = dir.resolve("a.timer");
+    store.save(blocking, FIRST);
+    store.save(path, FIRST);
+    store.save(path, SECOND);
+    release.countDown();
+    store.flush();
+
+    assertEquals(List.of(blocking, path), saved);
+    assertEquals(SECOND, PresetFile.load(path.toString()));
+  }
+
+  @Test
+  void loadsThePendingSnapshot() throws Exception {
+    Path path = dir.resolve("a.timer");
+    PresetFile.save(FIRST, path.toString());
+    store.save(blocking, FIRST);
+    store.save(path, SECOND);
+
+    List<Interval> loaded = new ArrayList<>();
+    CompletableFuture<List<PresetError>> result = store.load(path, 100, loaded::addAll);
+    release.countDown();
+
+    assertTrue(result.get(5, TimeUnit.SECONDS).isEmpty());
+    assertEquals(SECOND, loaded);
+  }
+
+  @Test
+  void loadsTheFileInChunks() throws Exception {
+    Path path = dir.resolve("a.timer");
+    List<Interval> intervals = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      intervals.add(new Interval(i * 1000, "Interval " + i));
+    }
+    PresetFile.save(intervals, path.toString());
+
+    List<List<Interval>> chunks = new CopyOnWriteArrayList<>();
+    assertTrue(store.load(path, 2, chunks::add).get(5, TimeUnit.SECONDS).isEmpty());
+
+    assertEquals(List.of(intervals.subList(0, 2), intervals.subList(2, 4), intervals.subList(4, 5)),
+      chunks);
+  }
+
+  @Test
+  void flushWaitsForEveryQueuedSave() {
+    Path path = dir.resolve("a.timer");
+    store.save(blocking, FIRST);
+    store.save(path, FIRST);
+    releaseLater();
+    store.flush();
+
+    assertTrue(Files.exists(path));
+    assertEquals(List.of(blocking, path), saved);
+  }
+
+  @Test
+  void discardDropsAQueuedSave() {
+    Path path = dir.resolve("a.timer");
+    store.save(blocking, FIRST);
+    store.save(path, FIRST);
+    releaseLater();
+    store.discard(path);
+    store.flush();
+
+    assertFalse(Files.exists(path));
+    assertEquals(List.of(blocking), saved);
+  }
+
+  @Test
+  void discardWaitsForARunningWrite() throws Exception {
+    store.save(blocking, FIRST);
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    releaseLater();
+    store.discard(blocking);
+
+    // the file written before the discard can now be deleted for good
+    Files.delete(blocking);
+    store.flush();
+    assertFalse(Files.exists(blocking));
+  }
+
+  // lets the blocking write finish once the test thread waits for the store
+  private void releaseLater() {
+    new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        return;
+      }
+      release.countDown();
+    }).start();
+  }
+}
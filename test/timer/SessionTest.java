@@ -0,0 +1,44 @@
+package timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionTest {
+  // wakeups come at most every 2.5 s, later than the steps of a second each
+  private final SessionScheduler scheduler = new SessionScheduler(2_500_000_000L);
+
+  @AfterEach
+  void tearDown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void reportsEveryStepPassedBetweenTwoWakeups() throws InterruptedException {
+    Session session = new Session(scheduler);
+    List<String> events = new CopyOnWriteArrayList<>();
+    CountDownLatch finished = new CountDownLatch(1);
+    session.addListener(new SessionListener() {
+      public void transition(Session session, int index, long time) {
+        events.add(index + " " + session.getStep().getLabel());
+      }
+
+      public void finished(Session session, long time) {
+        finished.countDown();
+      }
+    });
+
+    session.start(List.of(new RepeatGroup(2, "g",
+      List.of(new Interval(1000, "a"), new Interval(1000, "b")))));
+
+    assertTrue(finished.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of("0 b", "0 a", "0 b"), events);
+  }
+}
@@ -0,0 +1,80 @@
+package timer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingEngineTest {
+  private static final long MS = 1_000_000L;
+
+  // 00:05 a, 2x (00:02 b, 00:03 c), 00:04 d
+  private static final List<Interval> INTERVALS = List.of(new Interval(5000, "a"),
+    new RepeatGroup(2, "g", List.of(new Interval(2000, "b"), new Interval(3000, "c"))),
+    new Interval(4000, "d"));
+
+  private long now;
+  private TimingEngine engine;
+
+  @BeforeEach
+  void setUp() {
+    engine = new TimingEngine(() -> now);
+    engine.start(INTERVALS, 0);
+  }
+
+  @Test
+  void followsTheStepsInsideAGroup() {
+    now = 11_000 * MS;
+
+    assertEquals(1, engine.getCurrent());
+    assertEquals("b", engine.getStep().getLabel());
+    assertEquals(12_000 * MS, engine.getDeadline());
+    assertEquals(1000, engine.getRemaining());
+  }
+
+  @Test
+  void finishesAfterTheTotalDuration() {
+    now = 18_999 * MS;
+    assertFalse(engine.isFinished());
+    assertTrue(engine.isLastStep());
+
+    now = 19_000 * MS;
+    assertTrue(engine.isFinished());
+    assertEquals(19_000, engine.getTotalDuration());
+  }
+
+  @Test
+  void pausesTheDeadlines() {
+    now = 1000 * MS;
+    engine.pause();
+    now = 61_000 * MS;
+    engine.resume();
+
+    assertEquals(65_000 * MS, engine.getDeadline());
+    assertEquals(1000, engine.getElapsed());
+  }
+
+  @Test
+  void seeksIntoAGroup() {
+    engine.seek(12_500);
+
+    assertEquals(1, engine.getCurrent());
+    assertEquals("c", engine.getStep().getLabel());
+    assertEquals(-500 * MS, engine.getStepStart());
+  }
+
+  @Test
+  void goesThroughEveryStepOfAStall() {
+    now = 16_000 * MS;
+    List<String> steps = new ArrayList<>();
+    engine.forEachStep(0, engine.getStepStart(),
+      (index, step, start) -> steps.add(index + " " + step.getLabel() + " " + start / MS));
+
+    assertEquals(List.of("1 b 5000", "1 c 7000", "1 b 10000", "1 c 12000", "2 d 15000"), steps);
+  }
+}
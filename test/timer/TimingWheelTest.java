@@ -0,0 +1,75 @@
+package timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+  private static final long TICK = 1000;
+
+  @Test
+  void expiresOnTheFirstTickAfterTheDeadline() {
+    TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+    wheel.schedule(2500, "a");
+    List<String> expired = new ArrayList<>();
+
+    wheel.advance(2999, expired::add);
+    assertTrue(expired.isEmpty());
+    assertEquals(3000, wheel.nextWakeup());
+
+    wheel.advance(3000, expired::add);
+    assertEquals(List.of("a"), expired);
+    assertTrue(wheel.isEmpty());
+  }
+
+  @Test
+  void expiresPassedDeadlinesOnTheNextTick() {
+    TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+    List<String> expired = new ArrayList<>();
+    wheel.advance(10_000, expired::add);
+    wheel.schedule(5000, "late");
+
+    wheel.advance(10_999, expired::add);
+    assertTrue(expired.isEmpty());
+    wheel.advance(11_000, expired::add);
+    assertEquals(List.of("late"), expired);
+  }
+
+  @Test
+  void matchesTheDeadlinesOnEveryLevel() {
+    // deadlines up to beyond the span of all four levels, 64^4 ticks
+    Random random = new Random(42);
+    long span = 1L << 24;
+    TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0);
+    List<Long> deadlines = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      long deadline = (long) (random.nextDouble() * 3 * span) * TICK;
+      deadlines.add(deadline);
+      wheel.schedule(deadline, deadline);
+    }
+
+    long now = 0;
+    int count = 0;
+    while (!wheel.isEmpty()) {
+      long wakeup = wheel.nextWakeup();
+      assertTrue(wakeup > now);
+      now = wakeup;
+
+      long time = now;
+      List<Long> expired = new ArrayList<>();
+      wheel.advance(now, expired::add);
+      for (long deadline : expired) {
+        // never early, and never later than the tick the deadline falls into
+        assertTrue(deadline <= time, deadline + " expired at " + time);
+        assertTrue(time - deadline < TICK, deadline + " expired at " + time);
+      }
+      count += expired.size();
+    }
+    assertEquals(deadlines.size(), count);
+  }
+}